@@ -19,19 +19,24 @@
 package org.sbml.reporter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.sbml.jsbml.ASTNode;
 import org.sbml.jsbml.AbstractNamedSBase;
 import org.sbml.jsbml.Compartment;
 import org.sbml.jsbml.Creator;
+import org.sbml.jsbml.Model;
 import org.sbml.jsbml.Reaction;
 import org.sbml.jsbml.SBMLDocument;
-import org.sbml.jsbml.SBO;
 import org.sbml.jsbml.Species;
+import org.sbml.jsbml.SpeciesReference;
 import org.sbml.jsbml.UnitDefinition;
-import org.sbml.jsbml.ontology.Term;
+import org.sbml.reporter.Preprocessor.Participation;
 
 /**
  * This Class represents the content of a report
@@ -49,7 +54,24 @@ import org.sbml.jsbml.ontology.Term;
  */
 public abstract class AbstractBuilder {
 
-  private final static int ROUND_PRECISION = 3;
+  private final static int   ROUND_PRECISION = 3;
+
+  private String              reportFileName;
+
+  /**
+   * Which compartments and sections are to be reported
+   */
+  private ReportSpecification specification = new ReportSpecification();
+
+  /**
+   * Controls the report that is being created, can be {@code null}
+   */
+  private ReportMonitor       monitor;
+
+  /**
+   * Renders formulas of any depth for formats without mathematical markup
+   */
+  private final InfixMathRenderer formulaRenderer = new InfixMathRenderer();
 
 
   /**
@@ -114,15 +136,226 @@ public abstract class AbstractBuilder {
 
 
   /**
-   * Create section of reactions
+   * Create the section of reactions, which describes each reaction exactly
+   * once, even if it belongs to several compartments
    *
-   * @param mapCompartmentReactions
+   * @param reactions
+   *        the reactions of all selected compartments
+   * @return String
+   */
+  public abstract String createSectionOfReactions(List<Reaction> reactions);
+
+
+  /**
+   * Name of the separate file (relative to the report file) that receives the
+   * given section of a compartment. The default implementation returns null,
+   * i.e., everything is written into the report file itself.
+   *
+   * @param section
+   * @param compartment
+   *        null for the section of reactions, which belongs to no compartment
+   * @return String or null
+   */
+  public String getFileName(ReportSection section, Compartment compartment) {
+    return null;
+  }
+
+
+  /**
+   * Create beginning of a separate file that has been opened for the given
+   * section
+   *
+   * @param section
    * @param compartment
+   * @param fileName
    * @return String
    */
-  public abstract String createSectionOfReactions(
-    Map<String, List<Reaction>> mapCompartmentReactions,
-    Compartment compartment);
+  public String createFileHead(ReportSection section, Compartment compartment,
+    String fileName) {
+    return "";
+  }
+
+
+  /**
+   * Create end of a separate file
+   *
+   * @param fileName
+   * @return String
+   */
+  public String createFileFoot(String fileName) {
+    return "";
+  }
+
+
+  /**
+   * Create a reference within the report file to a separate file when this
+   * has been completed
+   *
+   * @param section
+   * @param compartment
+   * @param fileName
+   * @return String
+   */
+  public String createFileReference(ReportSection section,
+    Compartment compartment, String fileName) {
+    return "";
+  }
+
+
+  /**
+   * Whether this builder needs the {@link SearchIndex} of the preprocessor
+   *
+   * @return boolean
+   */
+  public boolean requiresSearchIndex() {
+    return false;
+  }
+
+
+  /**
+   * Create additional files that accompany the report, e.g., scripts that are
+   * shared by all files of a report. The default implementation creates none.
+   *
+   * @param preprocessor
+   * @return map from file names (relative to the report file) to their content
+   */
+  public Map<String, String> createSupplementaryFiles(
+    Preprocessor preprocessor) {
+    return Collections.emptyMap();
+  }
+
+
+  /**
+   * @param reportFileName
+   *        the name of the report file that is currently being created
+   */
+  public void setReportFileName(String reportFileName) {
+    this.reportFileName = reportFileName;
+  }
+
+
+  /**
+   * @return the name of the report file that is currently being created
+   */
+  public String getReportFileName() {
+    return reportFileName;
+  }
+
+
+  /**
+   * @param specification
+   *        which compartments and sections are to be reported
+   */
+  public void setSpecification(ReportSpecification specification) {
+    this.specification = specification;
+  }
+
+
+  /**
+   * @return which compartments and sections are to be reported
+   */
+  public ReportSpecification getSpecification() {
+    return specification;
+  }
+
+
+  /**
+   * @param monitor
+   *        controls the report that is being created, can be {@code null}.
+   *        Builders pass it on to their translators.
+   */
+  public void setMonitor(ReportMonitor monitor) {
+    this.monitor = monitor;
+    formulaRenderer.setMonitor(monitor);
+  }
+
+
+  /**
+   * @param math
+   * @return the given expression as plain-text formula in infix notation
+   */
+  protected String getFormula(ASTNode math) {
+    return formulaRenderer.render(math);
+  }
+
+
+  /**
+   * Gives the monitor of the report the opportunity to abort it
+   *
+   * @param output
+   *        the part of the current section that has been built so far
+   * @throws ReportAbortedException
+   */
+  protected void checkpoint(CharSequence output) {
+    if (monitor != null) {
+      monitor.checkpoint(output.length());
+    }
+  }
+
+
+  /**
+   * @param section
+   * @return whether the given type of section is to be reported
+   */
+  public boolean isIncluded(ReportSection section) {
+    return specification.isIncluded(section);
+  }
+
+
+  /**
+   * @param sbmlDocument
+   * @return the compartments of the document that are to be reported
+   */
+  public List<Compartment> getSelectedCompartments(SBMLDocument sbmlDocument) {
+    List<Compartment> compartments = new ArrayList<Compartment>();
+    for (Compartment compartment : sbmlDocument.getModel()
+        .getListOfCompartments()) {
+      if (specification.isIncluded(compartment)) {
+        compartments.add(compartment);
+      }
+    }
+    return compartments;
+  }
+
+
+  /**
+   * @param sbmlDocument
+   * @param preprocessor
+   * @return the reactions of all compartments that are to be reported in the
+   *         order of the model, each only once
+   */
+  public List<Reaction> getSelectedReactions(SBMLDocument sbmlDocument,
+    Preprocessor preprocessor) {
+    Set<String> ids = new HashSet<String>();
+    for (Compartment compartment : getSelectedCompartments(sbmlDocument)) {
+      for (Reaction reaction : getReactionsOfCompartment(preprocessor,
+        compartment.getId())) {
+        ids.add(reaction.getId());
+      }
+    }
+    List<Reaction> reactions = new ArrayList<Reaction>(ids.size());
+    for (Reaction reaction : sbmlDocument.getModel().getListOfReactions()) {
+      if (ids.contains(reaction.getId())) {
+        reactions.add(reaction);
+      }
+    }
+    return reactions;
+  }
+
+
+  /**
+   * Name of the report file without its extension, used as a prefix for the
+   * names of separate files
+   *
+   * @return String
+   */
+  protected String getReportBaseName() {
+    if (reportFileName == null) {
+      return "report";
+    }
+    int dot = reportFileName.lastIndexOf('.');
+    return dot > 0 ? reportFileName.substring(0, dot) : reportFileName;
+  }
 
 
   /**
@@ -204,7 +437,7 @@ public abstract class AbstractBuilder {
    * @param preprocessor
    * @return Set
    */
-  public static Set<Term> getSBOTerms(Preprocessor preprocessor) {
+  public static Set<SBOTerm> getSBOTerms(Preprocessor preprocessor) {
     return preprocessor.getSboTerms();
   }
 
@@ -275,6 +508,52 @@ public abstract class AbstractBuilder {
   }
 
 
+  /**
+   * @param reaction
+   * @return the IDs of the compartments of all reactants and products of the
+   *         given reaction in the order of their first occurrence; species
+   *         references to undefined species are ignored
+   */
+  public static Set<String> getCompartmentsOfReaction(Reaction reaction) {
+    Set<String> compartments = new LinkedHashSet<String>();
+    Model model = reaction.getModel();
+    addCompartments(model, reaction.getListOfReactants(), compartments);
+    addCompartments(model, reaction.getListOfProducts(), compartments);
+    return compartments;
+  }
+
+
+  /**
+   * @param model
+   * @param speciesReferences
+   * @param compartments
+   *        receives the IDs of the compartments of the referenced species
+   */
+  private static void addCompartments(Model model,
+    List<SpeciesReference> speciesReferences, Set<String> compartments) {
+    for (SpeciesReference reference : speciesReferences) {
+      Species currSpecies = model.getSpecies(reference.getSpecies());
+      if (currSpecies != null) {
+        compartments.add(currSpecies.getCompartment());
+      }
+    }
+  }
+
+
+  /**
+   * @param unitDefinition
+   * @return the units in a human-readable form or null if dimensionless or
+   *         unknown
+   */
+  public static String getUnits(UnitDefinition unitDefinition) {
+    if ((unitDefinition == null)
+        || unitDefinition.getName().equals("dimensionless")) {
+      return null;
+    }
+    return UnitDefinition.printUnits(unitDefinition, true);
+  }
+
+
   /**
    * Get text description or ID (if text missing) of given sBase
    *
@@ -368,10 +647,12 @@ public abstract class AbstractBuilder {
   public static String createTableOfCompartments(List<Compartment> compartments,
     AbstractTranslator translator) {
     StringBuilder sb = new StringBuilder();
-    sb.append(translator.openTable("Summary of compartments in model", 1));
+    sb.append(translator.openTable("Summary of compartments in model", 1,
+      compartments.size()));
     sb.append(translator.createTableHeading("Compartment"));
     List<Cell> cells = new ArrayList<Cell>();
     for (Compartment compartment : compartments) {
+      translator.checkpoint(sb);
       cells.add(new Cell(getDescription(compartment), false,
         compartment.getId(), true));
       sb.append(translator.createTableRow(cells));
@@ -392,13 +673,42 @@ public abstract class AbstractBuilder {
    */
   public static String createTableOfSpecies(Compartment compartment,
     List<Species> species, AbstractTranslator translator) {
+    return createTableOfSpecies(compartment, species, translator, null,
+      false);
+  }
+
+
+  /**
+   * Create table of species belonging to certain compartment
+   *
+   * @param compartment
+   * @param species
+   * @param translator
+   * @param preprocessor
+   *        if not null, a column lists the reactions in which each species
+   *        takes part
+   * @param linkReactions
+   *        whether these reactions are linked to their entries in the report
+   * @return String
+   */
+  public static String createTableOfSpecies(Compartment compartment,
+    List<Species> species, AbstractTranslator translator,
+    Preprocessor preprocessor, boolean linkReactions) {
     StringBuilder sb = new StringBuilder();
-    sb.append(translator.openTable("Table of Species", 8));
-    sb.append(translator.createTableHeading("Name", "Initial Amount",
-      "Initial Concentration", "Conversion Factor", "SBO Term", "Compartment"));
+    sb.append(translator.openTable("Table of Species", 8, species.size()));
+    if (preprocessor != null) {
+      sb.append(translator.createTableHeading("Name", "Initial Amount",
+        "Initial Concentration", "Conversion Factor", "SBO Term",
+        "Compartment", "Participates in"));
+    } else {
+      sb.append(translator.createTableHeading("Name", "Initial Amount",
+        "Initial Concentration", "Conversion Factor", "SBO Term",
+        "Compartment"));
+    }
     List<Cell> cells = new ArrayList<Cell>();
     Cell defaultCell = new Cell("-", false);
     for (Species s : species) {
+      translator.checkpoint(sb);
       cells.add(new Cell(getDescription(s), false, s.getId(), false));
       String content;
       // TODO hasOnlySubstanceUnits? correct units term for concentration?
@@ -430,15 +740,28 @@ public abstract class AbstractBuilder {
         cells.add(defaultCell);
       }
       if (s.isSetSBOTerm()) {
-        Term sboTerm = SBO.getTerm(s.getSBOTerm());
+        SBOTerm sboTerm = SBOSnapshot.getTerm(s.getSBOTerm());
         cells.add(new Cell(
-          translator.setGlossaryLink(sboTerm.toString(), sboTerm.getId()),
+          translator.createSBOTerm(sboTerm.toString(), sboTerm.getId()),
           false));
       } else {
         cells.add(defaultCell);
       }
       cells.add(new Cell(getDescription(compartment), false,
         compartment.getId(), true));
+      if (preprocessor != null) {
+        List<Participation> participations =
+            preprocessor.getReactionsOfSpecies(s.getId());
+        if (participations.isEmpty()) {
+          cells.add(defaultCell);
+        } else {
+          Cell cell = new Cell(
+            getParticipations(participations, translator, linkReactions),
+            false);
+          cell.isMarkup = true;
+          cells.add(cell);
+        }
+      }
       sb.append(translator.createTableRow(cells));
       cells.clear();
     }
@@ -447,6 +770,30 @@ public abstract class AbstractBuilder {
   }
 
 
+  /**
+   * @param participations
+   * @param translator
+   * @param link
+   *        whether the reactions are linked to their entries in the report
+   * @return the IDs of the given reactions, each followed by the role of the
+   *         species in it, e.g., {@code R1 (reactant), R2 (modifier)}, in the
+   *         format of the given translator
+   */
+  public static String getParticipations(List<Participation> participations,
+    AbstractTranslator translator, boolean link) {
+    StringBuilder sb = new StringBuilder();
+    for (Participation participation : participations) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      String id = participation.getReaction().getId();
+      sb.append(link ? translator.createLink(id, id) : translator.mask(id));
+      sb.append(translator.mask(" (" + participation.getRole() + ")"));
+    }
+    return sb.toString();
+  }
+
+
   /**
    * Create table of reactions belonging to certain compartment
    *
@@ -457,14 +804,35 @@ public abstract class AbstractBuilder {
    */
   public static String createTableOfReactions(Compartment compartment,
     List<Reaction> reactions, AbstractTranslator translator) {
+    return createTableOfReactions(compartment, reactions, translator, false);
+  }
+
+
+  /**
+   * Create table of reactions belonging to certain compartment
+   *
+   * @param compartment
+   * @param reactions
+   * @param translator
+   * @param linkDetails
+   *        if true, the name of each reaction links to its description in the
+   *        section of reactions, otherwise it is the target of links to the
+   *        reaction
+   * @return String
+   */
+  public static String createTableOfReactions(Compartment compartment,
+    List<Reaction> reactions, AbstractTranslator translator,
+    boolean linkDetails) {
     StringBuilder sb = new StringBuilder();
-    sb.append(translator.openTable("Information about Reactions", 6));
+    sb.append(
+      translator.openTable("Information about Reactions", 6, reactions.size()));
     sb.append(translator.createTableHeading("Name", "Reversible", "Reactants",
       "Products", "SBO Term", "Compartment"));
     List<Cell> cells = new ArrayList<Cell>();
     Cell defaultCell = new Cell("-", false);
     for (Reaction r : reactions) {
-      cells.add(new Cell(getDescription(r), false, r.getId(), false));
+      translator.checkpoint(sb);
+      cells.add(new Cell(getDescription(r), false, r.getId(), linkDetails));
       if (r.isSetReversible()) {
         cells.add(new Cell(translator.trueFalseMask(r.getReversible()), false));
       } else {
@@ -473,9 +841,9 @@ public abstract class AbstractBuilder {
       cells.add(new Cell(getReactants(r), false));
       cells.add(new Cell(getProducts(r), false));
       if (r.isSetSBOTerm()) {
-        Term sboTerm = SBO.getTerm(r.getSBOTerm());
+        SBOTerm sboTerm = SBOSnapshot.getTerm(r.getSBOTerm());
         cells.add(new Cell(
-          translator.setGlossaryLink(sboTerm.toString(), sboTerm.getId()),
+          translator.createSBOTerm(sboTerm.toString(), sboTerm.getId()),
           false));
       } else {
         cells.add(defaultCell);
@@ -493,15 +861,32 @@ public abstract class AbstractBuilder {
   /**
    * Create the section for the reactions
    *
-   * @param compartment
    * @param reactions
    * @param translator
    * @return String
    */
-  public static String createSectionOfReactions(Compartment compartment,
-    List<Reaction> reactions, AbstractTranslator translator) {
+  public static String createSectionOfReactions(List<Reaction> reactions,
+    AbstractTranslator translator) {
+    return createSectionOfReactions(reactions, translator, true);
+  }
+
+
+  /**
+   * Create the section for the reactions, in which the name of each reaction
+   * is the target of links to it
+   *
+   * @param reactions
+   *        each reaction is described once in the given order
+   * @param translator
+   * @param kineticLaws
+   *        whether the kinetic laws of the reactions are to be included
+   * @return String
+   */
+  public static String createSectionOfReactions(List<Reaction> reactions,
+    AbstractTranslator translator, boolean kineticLaws) {
     StringBuilder sb = new StringBuilder();
     for (Reaction r : reactions) {
+      translator.checkpoint(sb);
       sb.append(translator.createHeading(r.getId(), 2));
       List<Cell> cells = new ArrayList<Cell>();
       Cell defaultCell = new Cell("-", false);
@@ -536,15 +921,17 @@ public abstract class AbstractBuilder {
         cells.clear();
       }
       if (r.isSetSBOTerm()) {
-        Term sboTerm = SBO.getTerm(r.getSBOTerm());
+        SBOTerm sboTerm = SBOSnapshot.getTerm(r.getSBOTerm());
         cells.add(new Cell(
-          translator.setGlossaryLink(sboTerm.toString(), sboTerm.getId()),
+          translator.createSBOTerm(sboTerm.toString(), sboTerm.getId()),
           false));
         sb.append(translator.newEntry(
           "SBO Term: " + translator.createTableRowList(cells)));
         cells.clear();
       }
-      if (r.isSetCompartment()) {
+      Compartment compartment = r.isSetCompartment()
+          ? r.getModel().getCompartment(r.getCompartment()) : null;
+      if (compartment != null) {
         cells.add(new Cell(getDescription(compartment), false,
           compartment.getId(), true));
         sb.append(translator.newEntry(
@@ -552,14 +939,11 @@ public abstract class AbstractBuilder {
         cells.clear();
       }
       sb.append(translator.listingEnd());
-      if (r.isSetKineticLaw()) {
+      if (kineticLaws && r.isSetKineticLaw()) {
         sb.append(translator.createHeading("Kinetic Law", 3));
         sb.append(translator.listingBegin());
-        cells.add(new Cell(translator.newEntry(
-          translator.kineticLaw(r.getKineticLaw().getMath())), false));
-        sb.append(translator.createTableRowList(cells));
+        translator.appendKineticLaw(sb, r.getKineticLaw().getMath());
         sb.append(translator.listingEnd());
-        cells.clear();
       }
     }
     return sb.toString();
@@ -0,0 +1,606 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.ASTNode.Type;
+
+/**
+ * Overhead for classes that render abstract syntax trees of mathematical
+ * expressions in a certain format. Trees are traversed with an explicit stack,
+ * so that their depth is not limited by the call stack, and the markup is
+ * appended directly to the output. Chains of associative operators, such as
+ * deeply nested binary sums, are flattened into one n-ary operation. Subtrees
+ * that occur more than once, within one expression or across several
+ * expressions rendered by the same instance, are only rendered once. The
+ * effort is linear in the number of nodes.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public abstract class AbstractMathRenderer {
+
+  /**
+   * Caches are cleared before rendering an expression if they have grown
+   * beyond this number of distinct subtrees
+   */
+  private static final int MAX_CACHED_SUBTREES = 1 << 16;
+  /**
+   * Number of nodes after which the monitor of the report is given the
+   * opportunity to abort it
+   */
+  private static final int CHECKPOINT_INTERVAL = 1 << 10;
+  /**
+   * Caches are cleared before rendering an expression if the renderings they
+   * refer to have grown beyond this number of characters
+   */
+  private static final int MAX_CACHED_CHARACTERS = 1 << 22;
+
+  protected static final int PRECEDENCE_LOGICAL    = 5;
+  protected static final int PRECEDENCE_RELATIONAL = 10;
+  protected static final int PRECEDENCE_SUM        = 20;
+  protected static final int PRECEDENCE_NEGATION   = 25;
+  protected static final int PRECEDENCE_PRODUCT    = 30;
+  protected static final int PRECEDENCE_POWER      = 40;
+  protected static final int PRECEDENCE_ATOM       = 100;
+
+  /**
+   * One entry of the stack that replaces recursion
+   */
+  private static class Frame {
+
+    ASTNode       node;
+    int           id;
+    boolean       parenthesized;
+    /**
+     * The operands in rendering order, null before the node is entered
+     */
+    List<ASTNode> operands;
+    /**
+     * Index of the next operand to be rendered
+     */
+    int           next  = 0;
+    /**
+     * Position in the output where the rendering of this node starts if it is
+     * to be cached, -1 otherwise
+     */
+    int           start = -1;
+
+
+    Frame(ASTNode node, int id, boolean parenthesized) {
+      this.node = node;
+      this.id = id;
+      this.parenthesized = parenthesized;
+    }
+  }
+
+  /**
+   * The rendering of a subtree as range of a longer text. All subtrees cached
+   * while rendering one expression share the same text, so that nested
+   * subtrees are not copied once per enclosing subtree.
+   */
+  private static class Rendering {
+
+    /**
+     * The text that contains the rendering, null while it is only contained
+     * in the output of the expression that is currently rendered
+     */
+    String text;
+    int    start;
+    int    end;
+
+
+    Rendering(int start, int end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Maps a structural key of each subtree to an integer ID, identical subtrees
+   * share the same ID
+   */
+  private Map<String, Integer> subtreeIds  = new HashMap<String, Integer>();
+  /**
+   * Number of occurrences of each subtree ID
+   */
+  private int[]                occurrences = new int[64];
+  /**
+   * Rendering of subtrees that occur more than once
+   */
+  private Map<Integer, Rendering> cache    =
+      new HashMap<Integer, Rendering>();
+  /**
+   * Total length of the texts the cache refers to
+   */
+  private long                 cachedCharacters;
+  private ReportMonitor        monitor;
+
+
+  /**
+   * @param monitor
+   *        controls the report that is being created, can be {@code null}
+   */
+  public void setMonitor(ReportMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+
+  /**
+   * Render the given expression as stand-alone formula
+   *
+   * @param math
+   * @return String
+   */
+  public String render(ASTNode math) {
+    StringBuilder sb = new StringBuilder();
+    appendFormula(sb, math);
+    return sb.toString();
+  }
+
+
+  /**
+   * Append the given expression as stand-alone formula, i.e., including the
+   * markup that switches to math mode
+   *
+   * @param sb
+   * @param math
+   */
+  public void appendFormula(StringBuilder sb, ASTNode math) {
+    sb.append(openFormula());
+    append(sb, math);
+    sb.append(closeFormula());
+  }
+
+
+  /**
+   * Append the markup of the given expression
+   *
+   * @param sb
+   * @param math
+   */
+  public void append(StringBuilder sb, ASTNode math) {
+    if ((subtreeIds.size() > MAX_CACHED_SUBTREES)
+        || (cachedCharacters > MAX_CACHED_CHARACTERS)) {
+      subtreeIds.clear();
+      cache.clear();
+      cachedCharacters = 0;
+      Arrays.fill(occurrences, 0);
+    }
+    Map<ASTNode, Integer> ids = identify(math);
+    // subtrees cached while rendering this expression, which refer to sb
+    Map<Integer, Rendering> rendered = new HashMap<Integer, Rendering>();
+    Deque<Frame> stack = new ArrayDeque<Frame>();
+    stack.push(new Frame(math, ids.get(math), false));
+    int steps = 0;
+    while (!stack.isEmpty()) {
+      if ((monitor != null) && (++steps % CHECKPOINT_INTERVAL == 0)) {
+        monitor.checkpoint(sb.length());
+      }
+      Frame frame = stack.peek();
+      if (frame.operands == null) {
+        if (frame.parenthesized) {
+          sb.append(openParenthesis());
+        }
+        Rendering cached = rendered.get(frame.id);
+        if (cached != null) {
+          sb.append(sb, cached.start, cached.end);
+          closeFrame(sb, stack);
+          continue;
+        }
+        cached = cache.get(frame.id);
+        if (cached != null) {
+          sb.append(cached.text, cached.start, cached.end);
+          closeFrame(sb, stack);
+          continue;
+        }
+        frame.operands = getOperands(frame.node);
+        if ((occurrences[frame.id] > 1) && !frame.operands.isEmpty()) {
+          frame.start = sb.length();
+        }
+        sb.append(prefix(frame.node, frame.operands.size()));
+      }
+      if (frame.next < frame.operands.size()) {
+        if (frame.next > 0) {
+          sb.append(separator(frame.node, frame.next));
+        }
+        ASTNode operand = frame.operands.get(frame.next);
+        stack.push(new Frame(operand, ids.get(operand),
+          needsParentheses(frame.node, frame.next, operand)));
+        frame.next++;
+      } else {
+        sb.append(suffix(frame.node, frame.operands.size()));
+        if (frame.start >= 0) {
+          rendered.put(frame.id, new Rendering(frame.start, sb.length()));
+        }
+        closeFrame(sb, stack);
+      }
+    }
+    if (!rendered.isEmpty()) {
+      // copy the range that contains all new renderings only once
+      int start = Integer.MAX_VALUE;
+      int end = 0;
+      for (Rendering rendering : rendered.values()) {
+        start = Math.min(start, rendering.start);
+        end = Math.max(end, rendering.end);
+      }
+      String text = sb.substring(start, end);
+      for (Rendering rendering : rendered.values()) {
+        rendering.text = text;
+        rendering.start -= start;
+        rendering.end -= start;
+      }
+      cache.putAll(rendered);
+      cachedCharacters += text.length();
+    }
+  }
+
+
+  /**
+   * Remove the top frame from the stack and close its parentheses
+   *
+   * @param sb
+   * @param stack
+   */
+  private void closeFrame(StringBuilder sb, Deque<Frame> stack) {
+    if (stack.pop().parenthesized) {
+      sb.append(closeParenthesis());
+    }
+  }
+
+
+  /**
+   * Assign an ID to each node of given tree such that identical subtrees
+   * obtain the same ID and count the occurrences of each ID. Nodes are visited
+   * in post-order with an explicit stack.
+   *
+   * @param math
+   * @return map from nodes to IDs
+   */
+  private Map<ASTNode, Integer> identify(ASTNode math) {
+    Map<ASTNode, Integer> ids = new IdentityHashMap<ASTNode, Integer>();
+    Deque<ASTNode> stack = new ArrayDeque<ASTNode>();
+    stack.push(math);
+    StringBuilder key = new StringBuilder();
+    int steps = 0;
+    while (!stack.isEmpty()) {
+      if ((monitor != null) && (++steps % CHECKPOINT_INTERVAL == 0)) {
+        monitor.checkpoint();
+      }
+      ASTNode node = stack.peek();
+      if (ids.containsKey(node)) {
+        stack.pop();
+        continue;
+      }
+      boolean ready = true;
+      for (int i = node.getChildCount() - 1; i >= 0; i--) {
+        ASTNode child = node.getChild(i);
+        if (!ids.containsKey(child)) {
+          stack.push(child);
+          ready = false;
+        }
+      }
+      if (ready) {
+        stack.pop();
+        key.setLength(0);
+        key.append(node.getType());
+        key.append(':');
+        key.append(getValue(node));
+        for (int i = 0; i < node.getChildCount(); i++) {
+          key.append(i == 0 ? '(' : ',');
+          key.append(ids.get(node.getChild(i)));
+        }
+        String k = key.toString();
+        Integer id = subtreeIds.get(k);
+        if (id == null) {
+          id = subtreeIds.size();
+          subtreeIds.put(k, id);
+          if (id >= occurrences.length) {
+            occurrences = Arrays.copyOf(occurrences, 2 * occurrences.length);
+          }
+        }
+        occurrences[id]++;
+        ids.put(node, id);
+      }
+    }
+    return ids;
+  }
+
+
+  /**
+   * The value that distinguishes nodes of the same type
+   *
+   * @param node
+   * @return String
+   */
+  private static String getValue(ASTNode node) {
+    switch (node.getType()) {
+    case NAME:
+    case FUNCTION:
+      return node.getName();
+    case INTEGER:
+      return Integer.toString(node.getInteger());
+    case REAL:
+      return Double.toString(node.getReal());
+    case REAL_E:
+      return node.getMantissa() + "e" + node.getExponent();
+    case RATIONAL:
+      return node.getNumerator() + "/" + node.getDenominator();
+    default:
+      return "";
+    }
+  }
+
+
+  /**
+   * @param type
+   * @return true for operators whose nested applications can be merged into
+   *         one n-ary application
+   */
+  private static boolean isAssociative(Type type) {
+    switch (type) {
+    case PLUS:
+    case TIMES:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_XOR:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+
+  /**
+   * Obtain the operands of given node in rendering order. Operands of
+   * associative operators that apply the same operator are replaced by their
+   * own operands.
+   *
+   * @param node
+   * @return List
+   */
+  protected List<ASTNode> getOperands(ASTNode node) {
+    Type type = node.getType();
+    if (!isAssociative(type)) {
+      return node.getChildren() != null ? node.getChildren()
+        : new ArrayList<ASTNode>(0);
+    }
+    List<ASTNode> operands = new ArrayList<ASTNode>(node.getChildCount());
+    Deque<ASTNode> stack = new ArrayDeque<ASTNode>();
+    for (int i = node.getChildCount() - 1; i >= 0; i--) {
+      stack.push(node.getChild(i));
+    }
+    while (!stack.isEmpty()) {
+      ASTNode child = stack.pop();
+      if ((child.getType() == type) && (child.getChildCount() > 0)) {
+        for (int i = child.getChildCount() - 1; i >= 0; i--) {
+          stack.push(child.getChild(i));
+        }
+      } else {
+        operands.add(child);
+      }
+    }
+    return operands;
+  }
+
+
+  /**
+   * Binding strength of the operator at the root of given subtree
+   *
+   * @param node
+   * @return int
+   */
+  protected int getPrecedence(ASTNode node) {
+    switch (node.getType()) {
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_XOR:
+      return PRECEDENCE_LOGICAL;
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+      return PRECEDENCE_RELATIONAL;
+    case PLUS:
+      return PRECEDENCE_SUM;
+    case MINUS:
+      return node.getChildCount() == 1 ? PRECEDENCE_NEGATION : PRECEDENCE_SUM;
+    case TIMES:
+      return PRECEDENCE_PRODUCT;
+    case POWER:
+    case FUNCTION_POWER:
+    case FUNCTION_EXP:
+    case FUNCTION_FACTORIAL:
+      return PRECEDENCE_POWER;
+    case INTEGER:
+      return node.getInteger() < 0 ? PRECEDENCE_NEGATION : PRECEDENCE_ATOM;
+    case REAL:
+      return node.getReal() < 0d ? PRECEDENCE_NEGATION : PRECEDENCE_ATOM;
+    case REAL_E:
+      return node.getMantissa() < 0d ? PRECEDENCE_NEGATION
+        : PRECEDENCE_PRODUCT;
+    default:
+      return PRECEDENCE_ATOM;
+    }
+  }
+
+
+  /**
+   * Decide if an operand needs to be surrounded by parentheses
+   *
+   * @param parent
+   * @param index
+   *        position of the operand in the rendering order
+   * @param operand
+   * @return boolean
+   */
+  protected boolean needsParentheses(ASTNode parent, int index,
+    ASTNode operand) {
+    int precedence = getPrecedence(operand);
+    switch (parent.getType()) {
+    case PLUS:
+    case TIMES:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_XOR:
+      return precedence < getPrecedence(parent)
+          || ((index > 0) && (precedence == PRECEDENCE_NEGATION));
+    case MINUS:
+      if (parent.getChildCount() == 1) {
+        return precedence <= PRECEDENCE_NEGATION;
+      }
+      return (index == 0) ? precedence < PRECEDENCE_SUM
+        : precedence <= PRECEDENCE_NEGATION;
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+      return precedence <= PRECEDENCE_RELATIONAL;
+    case POWER:
+    case FUNCTION_POWER:
+      return (index == 0) && (precedence <= PRECEDENCE_POWER);
+    case FUNCTION_FACTORIAL:
+    case LOGICAL_NOT:
+      return precedence < PRECEDENCE_ATOM;
+    default:
+      return false;
+    }
+  }
+
+
+  /**
+   * @param node
+   * @return true if the node is a number, a name or a constant
+   */
+  protected static boolean isLeaf(ASTNode node) {
+    switch (node.getType()) {
+    case NAME:
+    case NAME_TIME:
+    case NAME_AVOGADRO:
+    case CONSTANT_E:
+    case CONSTANT_PI:
+    case CONSTANT_TRUE:
+    case CONSTANT_FALSE:
+    case INTEGER:
+    case REAL:
+    case REAL_E:
+    case RATIONAL:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+
+  /**
+   * Name of a function call, either the ID of a user-defined function or the
+   * name of a predefined one
+   *
+   * @param node
+   * @return String
+   */
+  protected static String getFunctionName(ASTNode node) {
+    if ((node.getType() == Type.FUNCTION) && (node.getName() != null)) {
+      return node.getName();
+    }
+    String name = node.getType().name().toLowerCase();
+    return name.startsWith("function_") ? name.substring(9) : name;
+  }
+
+
+  /**
+   * @param number
+   * @return a short representation of given finite number
+   */
+  protected static String formatNumber(double number) {
+    if ((number == Math.rint(number)) && (Math.abs(number) < 1E15)) {
+      return Long.toString((long) number);
+    }
+    return Double.toString(number);
+  }
+
+
+  /**
+   * @return markup that starts a formula
+   */
+  protected abstract String openFormula();
+
+
+  /**
+   * @return markup that ends a formula
+   */
+  protected abstract String closeFormula();
+
+
+  /**
+   * @return markup of an opening parenthesis
+   */
+  protected abstract String openParenthesis();
+
+
+  /**
+   * @return markup of a closing parenthesis
+   */
+  protected abstract String closeParenthesis();
+
+
+  /**
+   * Markup written before the first operand of a node, or the whole markup of
+   * a leaf
+   *
+   * @param node
+   * @param numOperands
+   * @return String
+   */
+  protected abstract String prefix(ASTNode node, int numOperands);
+
+
+  /**
+   * Markup written between two operands of a node
+   *
+   * @param node
+   * @param index
+   *        position of the following operand in the rendering order
+   * @return String
+   */
+  protected abstract String separator(ASTNode node, int index);
+
+
+  /**
+   * Markup written after the last operand of a node
+   *
+   * @param node
+   * @param numOperands
+   * @return String
+   */
+  protected abstract String suffix(ASTNode node, int numOperands);
+}
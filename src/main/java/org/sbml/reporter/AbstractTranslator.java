@@ -38,6 +38,16 @@ public abstract class AbstractTranslator {
 
   protected final Properties properties = new Properties();
 
+  /**
+   * Whether SBO terms are linked to a glossary
+   */
+  private boolean            glossaryEnabled = true;
+
+  /**
+   * Controls the report that is being created, can be {@code null}
+   */
+  private ReportMonitor      monitor;
+
 
   /**
    * This function initializes the document
@@ -88,6 +98,21 @@ public abstract class AbstractTranslator {
   public abstract String openTable(String caption, int numColumns);
 
 
+  /**
+   * This function initializes a table whose number of rows is known in
+   * advance, so that translators can choose a representation suitable for its
+   * size
+   *
+   * @param caption
+   * @param numColumns
+   * @param numRows
+   * @return String
+   */
+  public String openTable(String caption, int numColumns, int numRows) {
+    return openTable(caption, numColumns);
+  }
+
+
   /**
    * Create first row of table containing headings
    *
@@ -226,6 +251,19 @@ public abstract class AbstractTranslator {
   public abstract String kineticLaw(ASTNode law);
 
 
+  /**
+   * Append the kinetic law of given abstract syntax tree as entry of a list
+   * (see {@link #listingBegin()}) directly to the output. The result is not
+   * to be masked.
+   *
+   * @param sb
+   * @param law
+   */
+  public void appendKineticLaw(StringBuilder sb, ASTNode law) {
+    sb.append(newEntry(kineticLaw(law)));
+  }
+
+
   /**
    * Create new list entry
    *
@@ -261,6 +299,80 @@ public abstract class AbstractTranslator {
   public abstract String setGlossaryLink(String content, String id);
 
 
+  /**
+   * Create a link to the element with the given ID
+   *
+   * @param content
+   *        the text of the link, which is masked
+   * @param id
+   * @return String
+   */
+  public abstract String createLink(String content, String id);
+
+
+  /**
+   * @param glossaryEnabled
+   *        if false, no glossary is created and SBO terms are not linked to it
+   */
+  public void setGlossaryEnabled(boolean glossaryEnabled) {
+    this.glossaryEnabled = glossaryEnabled;
+  }
+
+
+  /**
+   * @return whether SBO terms are linked to a glossary
+   */
+  public boolean isGlossaryEnabled() {
+    return glossaryEnabled;
+  }
+
+
+  /**
+   * @param monitor
+   *        controls the report that is being created, can be {@code null}
+   */
+  public void setMonitor(ReportMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+
+  /**
+   * Gives the monitor of the report the opportunity to abort it, which
+   * builders call for each row of a table
+   *
+   * @param output
+   *        the part of the current section that has been built so far
+   * @throws ReportAbortedException
+   */
+  public void checkpoint(CharSequence output) {
+    if (monitor != null) {
+      monitor.checkpoint(output.length() + getPendingOutput());
+    }
+  }
+
+
+  /**
+   * @return the number of characters that this translator holds back, e.g.,
+   *         rows of a table that is written when it is closed
+   */
+  protected long getPendingOutput() {
+    return 0;
+  }
+
+
+  /**
+   * Create the representation of an SBO term, which is linked to the glossary
+   * if this is enabled
+   *
+   * @param content
+   * @param id
+   * @return String
+   */
+  public String createSBOTerm(String content, String id) {
+    return glossaryEnabled ? setGlossaryLink(content, id) : content;
+  }
+
+
   /**
    * Loads properties from xml file
    *
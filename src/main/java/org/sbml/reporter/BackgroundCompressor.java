@@ -0,0 +1,229 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An output stream that hands everything written to it in chunks over to a
+ * thread of its own, which writes it into a compressing stream. Rendering and
+ * compression of a report thus run in parallel. Optionally, all data are
+ * also written into a plain stream on the calling thread, e.g., to produce a
+ * precompressed copy next to a file.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class BackgroundCompressor extends OutputStream {
+
+  /**
+   * Size of the chunks that are passed to the compressing thread
+   */
+  private static final int    CHUNK_SIZE = 1 << 16;
+  /**
+   * Maximal number of chunks waiting for compression, which bounds the memory
+   * if rendering is faster than compression
+   */
+  private static final int    MAX_QUEUED = 16;
+  /**
+   * Marks the end of the data
+   */
+  private static final byte[] END        = new byte[0];
+
+  private final OutputStream          plain;
+  private final OutputStream          compressed;
+  private final BlockingQueue<byte[]> queue      =
+      new ArrayBlockingQueue<byte[]>(MAX_QUEUED);
+  private final Thread                worker;
+  private byte[]                      chunk      = new byte[CHUNK_SIZE];
+  private int                         count      = 0;
+  private boolean                     closed     = false;
+  /**
+   * First error of the compressing thread
+   */
+  private volatile IOException        failure;
+
+
+  /**
+   * @param compressed
+   *        the stream that compresses the data, which is closed together with
+   *        this stream
+   */
+  public BackgroundCompressor(OutputStream compressed) {
+    this(null, compressed);
+  }
+
+
+  /**
+   * @param plain
+   *        a stream that receives the uncompressed data on the calling thread,
+   *        can be {@code null}
+   * @param compressed
+   *        the stream that compresses the data on a thread of its own
+   */
+  public BackgroundCompressor(OutputStream plain, OutputStream compressed) {
+    this.plain = plain;
+    this.compressed = compressed;
+    worker = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        compress();
+      }
+    }, getClass().getSimpleName());
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+
+  /**
+   * Writes all chunks from the queue into the compressing stream until the
+   * end of the data. After an error, all further chunks are discarded so that
+   * the writing thread is never blocked.
+   */
+  private void compress() {
+    try {
+      for (byte[] data = queue.take(); data != END; data = queue.take()) {
+        if (failure == null) {
+          try {
+            compressed.write(data);
+          } catch (IOException exc) {
+            failure = exc;
+          }
+        }
+      }
+    } catch (InterruptedException exc) {
+      failure = new InterruptedIOException(exc.getMessage());
+    }
+  }
+
+
+  /**
+   * @throws IOException
+   *         if the compressing thread has failed
+   */
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+
+  /**
+   * Passes the current chunk to the compressing thread
+   *
+   * @throws IOException
+   */
+  private void handOver() throws IOException {
+    if (count == 0) {
+      return;
+    }
+    byte[] data = (count == chunk.length) ? chunk : Arrays.copyOf(chunk, count);
+    try {
+      queue.put(data);
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(exc.getMessage());
+    }
+    if (data == chunk) {
+      chunk = new byte[CHUNK_SIZE];
+    }
+    count = 0;
+    checkFailure();
+  }
+
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == chunk.length) {
+      handOver();
+    }
+    chunk[count++] = (byte) b;
+    if (plain != null) {
+      plain.write(b);
+    }
+  }
+
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (plain != null) {
+      plain.write(b, off, len);
+    }
+    while (len > 0) {
+      if (count == chunk.length) {
+        handOver();
+      }
+      int n = Math.min(len, chunk.length - count);
+      System.arraycopy(b, off, chunk, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+
+  @Override
+  public void flush() throws IOException {
+    if (plain != null) {
+      plain.flush();
+    }
+    checkFailure();
+  }
+
+
+  /**
+   * Waits until the compressing thread has written all data and closes both
+   * streams
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      try {
+        handOver();
+      } finally {
+        // the compressing thread needs to terminate even after an error
+        queue.put(END);
+        worker.join();
+      }
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      worker.interrupt();
+      throw new InterruptedIOException(exc.getMessage());
+    } finally {
+      try {
+        compressed.close();
+      } finally {
+        if (plain != null) {
+          plain.close();
+        }
+      }
+    }
+    checkFailure();
+  }
+}
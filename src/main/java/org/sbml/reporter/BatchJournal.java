@@ -0,0 +1,294 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class records the completed inputs of a batch in an append-only file,
+ * so that a batch that has been interrupted can be resumed. Each line
+ * contains the SHA-256 hash of an input, the hash of the
+ * {@link ReportSpecification#getContentKey() content key}, the input and the
+ * reports written for it together with their sizes and hashes, all separated
+ * by tabs. An input is complete if a line with its current hash and key
+ * exists and all its reports still have the recorded sizes and hashes. Lines
+ * are appended under a file lock, so several processes can share a journal,
+ * and an incomplete last line left by a crash is ignored.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class BatchJournal implements Closeable {
+
+  /**
+   * Name of the journal in the output directory if none is specified
+   */
+  public static final String DEFAULT_FILE_NAME = "batch.journal";
+
+  private static final char           SEPARATOR      = '\t';
+  private static final String         HASH_ALGORITHM = "SHA-256";
+
+  private final FileChannel           channel;
+  /**
+   * The last complete line of each input, split into fields
+   */
+  private final Map<String, String[]> entries        =
+      new HashMap<String, String[]>();
+
+
+  /**
+   * Opens the given journal, which is created if it does not exist
+   *
+   * @param file
+   * @throws IOException
+   */
+  public BatchJournal(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE,
+      StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try (FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+      ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+      }
+      String content = new String(buffer.array(), 0, buffer.position(),
+        StandardCharsets.UTF_8);
+      int start = 0;
+      int end;
+      while ((end = content.indexOf('\n', start)) >= 0) {
+        String[] fields = content.substring(start, end).split("\t", -1);
+        if ((fields.length >= 3) && ((fields.length - 3) % 3 == 0)) {
+          entries.put(unescape(fields[2]), fields);
+        }
+        start = end + 1;
+      }
+    } catch (IOException | RuntimeException exc) {
+      channel.close();
+      throw exc;
+    }
+  }
+
+
+  /**
+   * @return a new digest of the algorithm used for all hashes
+   */
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException exc) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(exc);
+    }
+  }
+
+
+  /**
+   * @param digest
+   * @return the hash of the given digest as hexadecimal number
+   */
+  private static String toHex(MessageDigest digest) {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+
+  /**
+   * @param input
+   * @return the hash of the content of the given input or report
+   * @throws IOException
+   */
+  public static String hash(Path input) throws IOException {
+    MessageDigest digest = createDigest();
+    byte[] buffer = new byte[1 << 16];
+    try (InputStream in = Files.newInputStream(input)) {
+      int length;
+      while ((length = in.read(buffer)) >= 0) {
+        digest.update(buffer, 0, length);
+      }
+    }
+    return toHex(digest);
+  }
+
+
+  /**
+   * @param key
+   * @return the hash of the given content key
+   */
+  private static String hashKey(String key) {
+    MessageDigest digest = createDigest();
+    digest.update(key.getBytes(StandardCharsets.UTF_8));
+    return toHex(digest);
+  }
+
+
+  /**
+   * @param input
+   * @param hash
+   *        the current hash of the input
+   * @param key
+   *        the content key of the current specification
+   * @return whether the input has been reported with the given content and
+   *         specification and all its reports still exist unchanged
+   */
+  public synchronized boolean isComplete(Path input, String hash, String key) {
+    String[] fields = entries.get(toString(input));
+    if ((fields == null) || !fields[0].equals(hash)
+        || !fields[1].equals(hashKey(key))) {
+      return false;
+    }
+    try {
+      for (int i = 3; i < fields.length; i += 3) {
+        Path output = Paths.get(unescape(fields[i]));
+        // the size is compared first because it is cheap
+        if (!Files.isRegularFile(output)
+            || (Files.size(output) != Long.parseLong(fields[i + 1]))
+            || !hash(output).equals(fields[i + 2])) {
+          return false;
+        }
+      }
+    } catch (IOException | NumberFormatException exc) {
+      return false;
+    }
+    return true;
+  }
+
+
+  /**
+   * Records that the given input is complete
+   *
+   * @param input
+   * @param hash
+   *        the hash of the reported content of the input
+   * @param key
+   *        the content key of the specification
+   * @param outputs
+   *        the reports written for the input
+   * @throws IOException
+   */
+  public synchronized void record(Path input, String hash, String key,
+    List<Path> outputs) throws IOException {
+    List<String> fields = new ArrayList<String>();
+    fields.add(hash);
+    fields.add(hashKey(key));
+    fields.add(escape(toString(input)));
+    for (Path output : outputs) {
+      fields.add(escape(toString(output)));
+      fields.add(Long.toString(Files.size(output)));
+      fields.add(hash(output));
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String field : fields) {
+      if (sb.length() > 0) {
+        sb.append(SEPARATOR);
+      }
+      sb.append(field);
+    }
+    sb.append('\n');
+    try (FileLock lock = channel.lock()) {
+      long position = channel.size();
+      ByteBuffer last = ByteBuffer.allocate(1);
+      if ((position > 0) && (channel.read(last, position - 1) > 0)
+          && (last.get(0) != '\n')) {
+        // terminate the incomplete line left by a crash
+        sb.insert(0, '\n');
+      }
+      ByteBuffer buffer =
+          ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      channel.force(false);
+    }
+    entries.put(toString(input), fields.toArray(new String[fields.size()]));
+  }
+
+
+  /**
+   * @param path
+   * @return the absolute form of the given path
+   */
+  private static String toString(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+
+
+  /**
+   * @param value
+   * @return the value with backslashes, tabs and line breaks escaped
+   */
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\t", "\\t")
+        .replace("\n", "\\n").replace("\r", "\\r");
+  }
+
+
+  /**
+   * @param value
+   * @return the value with all escape sequences replaced
+   */
+  private static String unescape(String value) {
+    StringBuilder sb = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if ((c == '\\') && (i + 1 < value.length())) {
+        c = value.charAt(++i);
+        if (c == 't') {
+          c = '\t';
+        } else if (c == 'n') {
+          c = '\n';
+        } else if (c == 'r') {
+          c = '\r';
+        }
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,774 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.SBMLDocument;
+
+/**
+ * This class reports a batch of input files in parallel. In order to keep all
+ * threads busy until the end even if the sizes of the models are skewed, jobs
+ * are started in the order of their estimated cost, the cheapest first, and
+ * models with at least {@link ReportSpecification#getSplitThreshold()}
+ * species and reactions are reported per compartment in separate tasks. Such
+ * tasks share the document, which they only read. Each compartment then gets
+ * complete reports of its own, named after the document and the compartment
+ * (see {@link #getPartName(String, String)}), instead of the reports of the
+ * whole document, and an index lists these parts. A job is only started
+ * when the estimated heap its model and reports need fits into the memory
+ * budget next to the running jobs. Jobs exceeding the whole budget are run on
+ * their own in low-memory mode, or rejected if they exceed the maximal heap.
+ * If a {@link BatchJournal} is set, inputs that it records as complete are
+ * skipped and all further inputs are recorded once all their reports are
+ * written.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class BatchScheduler {
+
+  /**
+   * Writes the reports of one document
+   */
+  public interface ReportWriter {
+
+    /**
+     * @param sbmlDocument
+     * @param specification
+     *        the compartments, sections and formats to be written
+     * @param baseName
+     *        the name of the reports without extension
+     * @return the report files written
+     * @throws Exception
+     */
+    public List<Path> write(SBMLDocument sbmlDocument,
+      ReportSpecification specification, String baseName) throws Exception;
+
+
+    /**
+     * Writes an index of the reports of a document that is reported per
+     * compartment
+     *
+     * @param compartments
+     *        the compartments that are reported, each under the name
+     *        {@link BatchScheduler#getPartName(String, String)}
+     * @param baseName
+     *        the name of the document without extension
+     * @return the index file written
+     * @throws Exception
+     */
+    public Path writeIndex(List<Compartment> compartments, String baseName)
+        throws Exception;
+  }
+
+  /**
+   * Number of species and reactions from which on models are split by default
+   */
+  public static final int DEFAULT_SPLIT_THRESHOLD = 100000;
+
+  /**
+   * Estimated number of bytes per element in archives, whose content is not
+   * inspected
+   */
+  private static final int BYTES_PER_ELEMENT = 1000;
+
+  /**
+   * Longest element name, including a namespace prefix, that is considered
+   * when counting elements
+   */
+  private static final int MAX_NAME_LENGTH   = 32;
+  /**
+   * Number of bytes of SBML in which elements are counted, the cost of
+   * larger files is extrapolated from their beginning
+   */
+  private static final int PREFIX_SIZE       = 1 << 20;
+  /**
+   * Estimated ratio between the size of archives and their content
+   */
+  private static final int ARCHIVE_EXPANSION = 5;
+  /**
+   * Estimated number of heap bytes per byte of SBML, i.e., of the parsed
+   * document
+   */
+  private static final int HEAP_PER_BYTE     = 8;
+  /**
+   * Estimated number of heap bytes of reports per compartment, species or
+   * reaction
+   */
+  private static final int HEAP_PER_ELEMENT  = 4096;
+  /**
+   * Milliseconds between two checks for cancellation while a job waits for
+   * memory
+   */
+  private static final int ADMISSION_POLL    = 100;
+
+  private final ReportSpecification specification;
+  private final ReportWriter        reportWriter;
+  private BatchJournal              journal;
+  /**
+   * The batch that is currently being run, null if none
+   */
+  private volatile Batch            batch;
+
+
+  /**
+   * A file of a batch together with its estimated cost
+   */
+  private static class Job implements Comparable<Job> {
+
+    private final Path input;
+    /**
+     * Number of compartments, species and reactions
+     */
+    private final long cost;
+    /**
+     * Estimated number of bytes of SBML
+     */
+    private final long size;
+    /**
+     * Hash of the content of the input, null if not needed
+     */
+    private final String hash;
+
+
+    /**
+     * @param input
+     * @param cost
+     * @param size
+     * @param hash
+     */
+    private Job(Path input, long cost, long size, String hash) {
+      this.input = input;
+      this.cost = cost;
+      this.size = size;
+      this.hash = hash;
+    }
+
+
+    /**
+     * @return the estimated number of heap bytes needed for the document and
+     *         its reports
+     */
+    private long getFootprint() {
+      return (size * HEAP_PER_BYTE) + (cost * HEAP_PER_ELEMENT);
+    }
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Comparable#compareTo(java.lang.Object)
+     */
+    @Override
+    public int compareTo(Job job) {
+      return Long.compare(cost, job.cost);
+    }
+  }
+
+
+  /**
+   * A job that has been started. Its memory is released and its reports are
+   * recorded in the journal when the job and all tasks it has been split into
+   * are complete.
+   */
+  private class RunningJob {
+
+    private final Job           job;
+    private final Semaphore     memory;
+    private final int           permits;
+    private final AtomicInteger holders = new AtomicInteger(1);
+    private final List<Path>    outputs = new ArrayList<Path>();
+    private volatile boolean    failed  = false;
+
+
+    /**
+     * @param job
+     * @param memory
+     * @param permits
+     *        the MiB acquired for the job
+     */
+    private RunningJob(Job job, Semaphore memory, int permits) {
+      this.job = job;
+      this.memory = memory;
+      this.permits = permits;
+    }
+
+
+    /**
+     * Count a further task of the job
+     */
+    private void share() {
+      holders.incrementAndGet();
+    }
+
+
+    /**
+     * @param files
+     *        reports written by a task of the job
+     */
+    private synchronized void addOutputs(List<Path> files) {
+      outputs.addAll(files);
+    }
+
+
+    /**
+     * Complete a task of the job
+     *
+     * @param succeeded
+     *        whether the task has written all its reports
+     * @throws IOException
+     *         if the job cannot be recorded in the journal
+     */
+    private void release(boolean succeeded) throws IOException {
+      if (!succeeded) {
+        failed = true;
+      }
+      if (holders.decrementAndGet() > 0) {
+        return;
+      }
+      memory.release(permits);
+      if ((journal != null) && !failed) {
+        synchronized (this) {
+          journal.record(job.input, job.hash, specification.getContentKey(),
+            outputs);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * @param specification
+   *        the number of threads, the split threshold and what is to be
+   *        reported
+   * @param reportWriter
+   */
+  public BatchScheduler(ReportSpecification specification,
+    ReportWriter reportWriter) {
+    this.specification = specification;
+    this.reportWriter = reportWriter;
+  }
+
+
+  /**
+   * @param journal
+   *        the journal of completed inputs, null if none is kept
+   */
+  public void setJournal(BatchJournal journal) {
+    this.journal = journal;
+  }
+
+
+  /**
+   * @param baseName
+   *        the name of the reports of a document
+   * @param compartmentId
+   * @return the name of the reports of the given compartment if the document
+   *         is reported per compartment
+   */
+  public static String getPartName(String baseName, String compartmentId) {
+    return baseName + "." + compartmentId;
+  }
+
+
+  /**
+   * Estimates the cost of reporting the given file by counting the start tags
+   * of compartments, species and reactions without parsing the document.
+   * Only the beginning of large files is read, and the count is extrapolated
+   * to their whole (uncompressed) size. The size of archives is used instead.
+   *
+   * @param input
+   * @return the estimated number of elements
+   * @throws IOException
+   */
+  public static long estimateCost(Path input) throws IOException {
+    return estimate(input, false).cost;
+  }
+
+
+  /**
+   * @param input
+   * @param hashed
+   *        whether the hash of the file is to be determined
+   * @return a job with the estimated number of elements and size of the
+   *         given file
+   * @throws IOException
+   */
+  private static Job estimate(Path input, boolean hashed) throws IOException {
+    String hash = hashed ? BatchJournal.hash(input) : null;
+    long fileSize = Files.size(input);
+    if (SBMLInput.isArchive(input)) {
+      return new Job(input, fileSize / BYTES_PER_ELEMENT,
+        fileSize * ARCHIVE_EXPANSION, hash);
+    }
+    final long[] consumed = new long[1];
+    InputStream file = new FilterInputStream(Files.newInputStream(input)) {
+
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          consumed[0]++;
+        }
+        return b;
+      }
+
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int length = super.read(b, off, len);
+        if (length > 0) {
+          consumed[0] += length;
+        }
+        return length;
+      }
+    };
+    try (InputStream in = SBMLInput.decompress(file)) {
+      byte[] buffer = new byte[1 << 16];
+      long[] counted = countElements(in, buffer);
+      long count = counted[0];
+      long size = counted[1];
+      if ((size < PREFIX_SIZE) || (in.read(buffer, 0, 1) < 0)) {
+        return new Job(input, count, size, hash);
+      }
+      // the compression ratio of the prefix applies to the whole file
+      double total = (double) size * fileSize / Math.max(consumed[0], 1);
+      return new Job(input, (long) (count * total / size), (long) total,
+        hash);
+    }
+  }
+
+
+  /**
+   * @param in
+   *        the content of an input
+   * @param buffer
+   * @return the number of compartment, species and reaction start tags and
+   *         the number of bytes within the first {@link #PREFIX_SIZE} bytes
+   * @throws IOException
+   */
+  private static long[] countElements(InputStream in, byte[] buffer)
+      throws IOException {
+    StringBuilder name = new StringBuilder();
+    boolean inName = false;
+    long count = 0;
+    long size = 0;
+    int length;
+    while ((size < PREFIX_SIZE) && ((length = in.read(buffer, 0,
+      (int) Math.min(buffer.length, PREFIX_SIZE - size))) >= 0)) {
+      size += length;
+      for (int i = 0; i < length; i++) {
+        char c = (char) (buffer[i] & 0xff);
+        if (inName) {
+          if (isNameCharacter(c)) {
+            if (name.length() < MAX_NAME_LENGTH) {
+              name.append(c);
+            } else {
+              inName = false;
+            }
+            continue;
+          }
+          inName = false;
+          if (isCountedElement(name)) {
+            count++;
+          }
+        }
+        if (c == '<') {
+          inName = true;
+          name.setLength(0);
+        }
+      }
+    }
+    return new long[] {count, size};
+  }
+
+
+  /**
+   * @param c
+   * @return whether the character can be part of a (prefixed) element name
+   */
+  private static boolean isNameCharacter(char c) {
+    return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))
+        || ((c >= '0') && (c <= '9')) || (c == '_') || (c == ':')
+        || (c == '-') || (c == '.');
+  }
+
+
+  /**
+   * @param name
+   *        an element name, possibly with namespace prefix
+   * @return whether it is a compartment, species or reaction
+   */
+  private static boolean isCountedElement(StringBuilder name) {
+    String localName = name.substring(name.lastIndexOf(":") + 1);
+    return localName.equals("compartment") || localName.equals("species")
+        || localName.equals("reaction");
+  }
+
+
+  /**
+   * Report all given files and wait until this is complete
+   *
+   * @param inputs
+   * @throws Exception
+   *         the first failure of any job, with all further failures as
+   *         suppressed exceptions
+   */
+  public void run(List<Path> inputs) throws Exception {
+    final Batch batch = new Batch(specification.getThreads());
+    this.batch = batch;
+    int capacity = getMemoryBudget();
+    Semaphore memory = new Semaphore(capacity);
+    try {
+      List<Job> jobs = estimate(batch, inputs);
+      if (jobs == null) {
+        return;
+      }
+      Collections.sort(jobs);
+      for (final Job job : jobs) {
+        int permits = toMebibytes(job.getFootprint());
+        ReportSpecification jobSpecification = specification;
+        if (permits > capacity) {
+          if (job.getFootprint() > Runtime.getRuntime().maxMemory()) {
+            batch.failures.add(new IOException(MessageFormat.format(
+              "{0} needs about {1} MiB of heap, but at most {2} MiB are "
+                  + "available; increase the maximal heap size (-Xmx)",
+              job.input, permits,
+              toMebibytes(Runtime.getRuntime().maxMemory()))));
+            continue;
+          }
+          permits = capacity;
+          jobSpecification = new ReportSpecification(specification);
+          jobSpecification.setLowMemory(true);
+        }
+        if (!acquire(batch, memory, permits)) {
+          break;
+        }
+        final RunningJob runningJob = new RunningJob(job, memory, permits);
+        final ReportSpecification finalSpecification = jobSpecification;
+        batch.submit(new Callable<Void>() {
+
+          @Override
+          public Void call() throws Exception {
+            boolean succeeded = false;
+            try {
+              report(batch, finalSpecification, runningJob);
+              succeeded = true;
+            } finally {
+              runningJob.release(succeeded);
+            }
+            return null;
+          }
+        });
+      }
+      batch.await();
+    } finally {
+      batch.executor.shutdownNow();
+      this.batch = null;
+    }
+    Exception failure = batch.failures.poll();
+    if (failure != null) {
+      for (Exception exc : batch.failures) {
+        failure.addSuppressed(exc);
+      }
+      throw failure;
+    }
+  }
+
+
+  /**
+   * Estimates and hashes all given files in parallel on the threads of the
+   * batch
+   *
+   * @param batch
+   * @param inputs
+   * @return the jobs of all inputs that are not yet complete according to
+   *         the journal or null if the batch has been cancelled
+   * @throws Exception
+   *         if an input cannot be estimated
+   */
+  private List<Job> estimate(Batch batch, List<Path> inputs)
+      throws Exception {
+    final boolean hashed = journal != null;
+    List<Future<Job>> estimates = new ArrayList<Future<Job>>(inputs.size());
+    for (final Path input : inputs) {
+      try {
+        estimates.add(batch.executor.submit(new Callable<Job>() {
+
+          @Override
+          public Job call() throws IOException {
+            return estimate(input, hashed);
+          }
+        }));
+      } catch (RejectedExecutionException exc) {
+        return null;
+      }
+    }
+    List<Job> jobs = new ArrayList<Job>(inputs.size());
+    String key = specification.getContentKey();
+    for (Future<Job> estimate : estimates) {
+      Job job = null;
+      while (job == null) {
+        try {
+          job = estimate.get(ADMISSION_POLL, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exc) {
+          // tasks skipped by a cancellation never complete
+          if (batch.executor.isShutdown()) {
+            return null;
+          }
+        } catch (ExecutionException exc) {
+          if (batch.executor.isShutdown()) {
+            return null;
+          }
+          throw (exc.getCause() instanceof Exception)
+              ? (Exception) exc.getCause() : exc;
+        }
+      }
+      if (!hashed || !journal.isComplete(job.input, job.hash, key)) {
+        jobs.add(job);
+      }
+    }
+    return jobs;
+  }
+
+
+  /**
+   * Cancels the batch that is currently being run: reports that have not yet
+   * been started are skipped and running ones are interrupted, so that they
+   * stop at their next checkpoint and discard their files. The method
+   * {@link #run(List)} then returns without waiting for skipped reports.
+   */
+  public void cancel() {
+    Batch batch = this.batch;
+    if (batch != null) {
+      batch.cancel();
+    }
+  }
+
+
+  /**
+   * @return the number of MiB available to the jobs of a batch
+   */
+  private int getMemoryBudget() {
+    if (specification.getMemoryBudget() > 0) {
+      return specification.getMemoryBudget();
+    }
+    return toMebibytes(Runtime.getRuntime().maxMemory() / 4 * 3);
+  }
+
+
+  /**
+   * @param bytes
+   * @return the given number of bytes in MiB, rounded up, at least one
+   */
+  private static int toMebibytes(long bytes) {
+    long mebibytes = Math.max(1, (bytes + (1 << 20) - 1) >> 20);
+    return (int) Math.min(mebibytes, Integer.MAX_VALUE);
+  }
+
+
+  /**
+   * Wait until the given amount of memory is available
+   *
+   * @param batch
+   * @param memory
+   * @param permits
+   *        MiB
+   * @return false if the batch has been cancelled in the meantime
+   * @throws InterruptedException
+   */
+  private static boolean acquire(Batch batch, Semaphore memory, int permits)
+      throws InterruptedException {
+    while (!memory.tryAcquire(permits, ADMISSION_POLL,
+      TimeUnit.MILLISECONDS)) {
+      if (batch.executor.isShutdown()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Read all documents of the given file and report them, split into
+   * compartments if they are large
+   *
+   * @param batch
+   * @param specification
+   *        the specification of the job, possibly in low-memory mode
+   * @param runningJob
+   *        the job, shared with the tasks of all compartments
+   * @throws Exception
+   */
+  private void report(final Batch batch,
+    final ReportSpecification specification, final RunningJob runningJob)
+        throws Exception {
+    SBMLInput.read(runningJob.job.input, new SBMLInput.DocumentHandler() {
+
+      @Override
+      public void handle(final String name, final SBMLDocument sbmlDocument)
+          throws Exception {
+        Model model = sbmlDocument.getModel();
+        int threshold = specification.getSplitThreshold();
+        if ((threshold == 0) || specification.isLowMemory()
+            || (model.getCompartmentCount() < 2)
+            || (model.getSpeciesCount() + model.getReactionCount()
+                < threshold)) {
+          runningJob.addOutputs(
+            reportWriter.write(sbmlDocument, specification, name));
+          return;
+        }
+        List<Compartment> compartments = new ArrayList<Compartment>();
+        for (Compartment compartment : model.getListOfCompartments()) {
+          if (specification.isIncluded(compartment)) {
+            compartments.add(compartment);
+          }
+        }
+        runningJob.addOutputs(Collections.singletonList(
+          reportWriter.writeIndex(compartments, name)));
+        for (Compartment compartment : compartments) {
+          final String compartmentId = compartment.getId();
+          runningJob.share();
+          batch.submit(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+              boolean succeeded = false;
+              try {
+                runningJob.addOutputs(reportWriter.write(sbmlDocument,
+                  specification.restrictTo(compartmentId),
+                  getPartName(name, compartmentId)));
+                succeeded = true;
+              } finally {
+                runningJob.release(succeeded);
+              }
+              return null;
+            }
+          });
+        }
+      }
+    });
+  }
+
+
+  /**
+   * The state of one run: the thread pool, the number of pending tasks,
+   * which grows when large models are split, and the failures
+   */
+  private static class Batch {
+
+    private final ExecutorService  executor;
+    private final Queue<Exception> failures =
+        new ConcurrentLinkedQueue<Exception>();
+    private int                    pending  = 0;
+
+
+    /**
+     * @param threads
+     */
+    private Batch(int threads) {
+      executor = Executors.newFixedThreadPool(threads);
+    }
+
+
+    /**
+     * @param task
+     */
+    private void submit(final Callable<Void> task) {
+      synchronized (this) {
+        pending++;
+      }
+      try {
+        executor.submit(new Runnable() {
+
+          @Override
+          public void run() {
+            try {
+              task.call();
+            } catch (Exception exc) {
+              failures.add(exc);
+            } finally {
+              done();
+            }
+          }
+        });
+      } catch (RejectedExecutionException exc) {
+        // the batch has been cancelled
+        done();
+      }
+    }
+
+
+    /**
+     * Count a task as complete
+     */
+    private synchronized void done() {
+      if (--pending == 0) {
+        notifyAll();
+      }
+    }
+
+
+    /**
+     * Interrupt running tasks, skip the pending ones and stop waiting for them
+     */
+    private void cancel() {
+      List<Runnable> skipped = executor.shutdownNow();
+      synchronized (this) {
+        pending -= skipped.size();
+        notifyAll();
+      }
+    }
+
+
+    /**
+     * Wait until all tasks, including those submitted by other tasks, are
+     * complete
+     *
+     * @throws InterruptedException
+     */
+    private synchronized void await() throws InterruptedException {
+      while (pending > 0) {
+        wait();
+      }
+    }
+  }
+}
@@ -46,6 +46,11 @@ public class Cell {
    * FALSE if corresponding text can be reached by clicking
    */
   public Boolean isClickable;
+  /**
+   * TRUE if content is already written in the format of the report, e.g.,
+   * because it contains links, and must therefore not be masked
+   */
+  public Boolean isMarkup = false;
 
 
   /**
@@ -0,0 +1,231 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A writer that encodes characters as UTF-8 into a large direct byte buffer,
+ * which is written into a channel whenever it is full. Byte buffers are
+ * recycled after the writer has been closed, so that writing many files does
+ * not allocate a new direct buffer for each of them.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class ChannelWriter extends Writer {
+
+  /**
+   * Default size of the byte buffer
+   */
+  public static final int                                 DEFAULT_BUFFER_SIZE =
+      1 << 20;
+  /**
+   * Number of characters that are collected before they are encoded
+   */
+  private static final int                                CHAR_BUFFER_SIZE    =
+      1 << 13;
+  /**
+   * Maximal number of idle byte buffers that are kept for reuse
+   */
+  private static final int                                MAX_POOLED          =
+      8;
+  private static final ConcurrentLinkedQueue<ByteBuffer>  pool                =
+      new ConcurrentLinkedQueue<ByteBuffer>();
+
+  private final WritableByteChannel channel;
+  private final CharsetEncoder      encoder;
+  private final CharBuffer          chars;
+  private ByteBuffer                bytes;
+
+
+  /**
+   * @param channel
+   */
+  public ChannelWriter(WritableByteChannel channel) {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+
+  /**
+   * @param channel
+   * @param bufferSize
+   *        the size of the byte buffer
+   */
+  public ChannelWriter(WritableByteChannel channel, int bufferSize) {
+    this.channel = channel;
+    encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    bytes = acquire(Math.max(bufferSize, 16));
+  }
+
+
+  /**
+   * @param capacity
+   * @return an idle pooled byte buffer of the given capacity or a new one
+   */
+  private static ByteBuffer acquire(int capacity) {
+    ByteBuffer buffer = pool.poll();
+    if ((buffer == null) || (buffer.capacity() != capacity)) {
+      return ByteBuffer.allocateDirect(capacity);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+
+  /**
+   * @param buffer
+   *        a byte buffer that is not used anymore
+   */
+  private static void release(ByteBuffer buffer) {
+    if (pool.size() < MAX_POOLED) {
+      pool.offer(buffer);
+    }
+  }
+
+
+  /**
+   * @throws IOException
+   *         if this writer has been closed
+   */
+  private void ensureOpen() throws IOException {
+    if (bytes == null) {
+      throw new IOException("Writer closed");
+    }
+  }
+
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    ensureOpen();
+    while (len > 0) {
+      if (!chars.hasRemaining()) {
+        encode(false);
+      }
+      int n = Math.min(len, chars.remaining());
+      chars.put(cbuf, off, n);
+      off += n;
+      len -= n;
+    }
+  }
+
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    ensureOpen();
+    while (len > 0) {
+      if (!chars.hasRemaining()) {
+        encode(false);
+      }
+      int n = Math.min(len, chars.remaining());
+      int position = chars.position();
+      str.getChars(off, off + n, chars.array(),
+        chars.arrayOffset() + position);
+      chars.position(position + n);
+      off += n;
+      len -= n;
+    }
+  }
+
+
+  @Override
+  public void write(int c) throws IOException {
+    ensureOpen();
+    if (!chars.hasRemaining()) {
+      encode(false);
+    }
+    chars.put((char) c);
+  }
+
+
+  /**
+   * Encodes the collected characters into the byte buffer and writes the
+   * byte buffer into the channel whenever it is full. A high surrogate at the
+   * end remains in the character buffer unless this is the end of the input.
+   *
+   * @param endOfInput
+   * @throws IOException
+   */
+  private void encode(boolean endOfInput) throws IOException {
+    chars.flip();
+    while (true) {
+      CoderResult result = encoder.encode(chars, bytes, endOfInput);
+      if (result.isOverflow()) {
+        drain();
+      } else {
+        break;
+      }
+    }
+    chars.compact();
+  }
+
+
+  /**
+   * Writes the content of the byte buffer into the channel
+   *
+   * @throws IOException
+   */
+  private void drain() throws IOException {
+    bytes.flip();
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    bytes.clear();
+  }
+
+
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    encode(false);
+    drain();
+  }
+
+
+  @Override
+  public void close() throws IOException {
+    if (bytes == null) {
+      return;
+    }
+    try {
+      encode(true);
+      while (encoder.flush(bytes).isOverflow()) {
+        drain();
+      }
+      drain();
+    } finally {
+      ByteBuffer buffer = bytes;
+      bytes = null;
+      release(buffer);
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This enumeration lists the compression formats of the JDK in which reports
+ * can be written
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public enum Compression {
+
+  /**
+   * Plain files
+   */
+  NONE(""),
+  /**
+   * The gzip file format
+   */
+  GZIP(".gz"),
+  /**
+   * The zlib format, i.e., DEFLATE with a short header and checksum
+   */
+  DEFLATE(".zz");
+
+  /**
+   * Size of the buffers of the compressing streams
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final String extension;
+
+
+  /**
+   * @param extension
+   */
+  private Compression(String extension) {
+    this.extension = extension;
+  }
+
+
+  /**
+   * @return the extension that is appended to the names of compressed files
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+
+  /**
+   * @param out
+   * @return a stream that compresses everything written to it into the given
+   *         stream
+   * @throws IOException
+   */
+  public OutputStream wrap(OutputStream out) throws IOException {
+    switch (this) {
+    case GZIP:
+      return new GZIPOutputStream(out, BUFFER_SIZE);
+    case DEFLATE:
+      // this constructor does not end the deflater when closing the stream
+      return new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            def.end();
+          }
+        }
+      };
+    default:
+      return out;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A {@link ReportSink} that writes into file channels. By default, each file
+ * is first written into a temporary file in the same directory, which is
+ * renamed to its final name when it is committed, i.e., after all files of
+ * the report have been written and closed successfully. Readers therefore
+ * never see partially written files, and an existing report is only replaced
+ * once its new version is complete.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class FileChannelSink implements ReportSink {
+
+  /**
+   * Write files under a temporary name and rename them when complete
+   */
+  private boolean atomic = true;
+
+
+  /**
+   * @param atomic
+   *        if true (default), files are written under a temporary name and
+   *        renamed when they are complete, otherwise they are written in
+   *        place
+   */
+  public void setAtomic(boolean atomic) {
+    this.atomic = atomic;
+  }
+
+
+  /**
+   * @return whether files are written under a temporary name first
+   */
+  public boolean isAtomic() {
+    return atomic;
+  }
+
+
+  @Override
+  public WritableByteChannel open(Path path) throws IOException {
+    if (!atomic) {
+      return new SinkChannel(FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), path,
+        path);
+    }
+    Path directory = path.toAbsolutePath().getParent();
+    while (true) {
+      // unlike Files.createTempFile, this creates the file with the default
+      // permissions, so that the renamed report is readable like any other
+      Path temporaryFile = directory.resolve("." + path.getFileName() + "."
+          + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+      try {
+        return new SinkChannel(FileChannel.open(temporaryFile,
+          StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+          temporaryFile, path);
+      } catch (FileAlreadyExistsException exc) {
+        // try another name
+      }
+    }
+  }
+
+
+  @Override
+  public void commit(WritableByteChannel channel) throws IOException {
+    SinkChannel sinkChannel = (SinkChannel) channel;
+    if (sinkChannel.discarded) {
+      throw new IOException(
+        "Cannot commit discarded file " + sinkChannel.target);
+    }
+    sinkChannel.close();
+    if (!sinkChannel.committed
+        && !sinkChannel.file.equals(sinkChannel.target)) {
+      try {
+        Files.move(sinkChannel.file, sinkChannel.target,
+          StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException exc) {
+        Files.move(sinkChannel.file, sinkChannel.target,
+          StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    sinkChannel.committed = true;
+  }
+
+
+  @Override
+  public void discard(WritableByteChannel channel) throws IOException {
+    SinkChannel sinkChannel = (SinkChannel) channel;
+    if (sinkChannel.committed) {
+      // the file has already replaced its previous version
+      return;
+    }
+    sinkChannel.discarded = true;
+    if (sinkChannel.closed) {
+      Files.deleteIfExists(sinkChannel.file);
+    }
+  }
+
+
+  /**
+   * A channel into a file that is renamed to its final name when it is
+   * committed, unless both are the same. Discarded files are deleted instead,
+   * also after they have been closed.
+   */
+  private static class SinkChannel implements WritableByteChannel {
+
+    private final FileChannel channel;
+    private final Path        file;
+    private final Path        target;
+    private volatile boolean  discarded = false;
+    /**
+     * Whether the file has been completed under its final name
+     */
+    private volatile boolean  committed = false;
+    /**
+     * Whether the channel has been closed by this class rather than, e.g., by
+     * an interrupt of the writing thread
+     */
+    private volatile boolean  closed    = false;
+
+
+    /**
+     * @param channel
+     * @param file
+     *        the file that is written by the channel
+     * @param target
+     *        the final name of the file
+     */
+    SinkChannel(FileChannel channel, Path file, Path target) {
+      this.channel = channel;
+      this.file = file;
+      this.target = target;
+    }
+
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return channel.write(src);
+    }
+
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        channel.close();
+      } finally {
+        if (discarded) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,485 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sbml.jsbml.AbstractNamedSBase;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.ModifierSpeciesReference;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.Species;
+import org.sbml.jsbml.SpeciesReference;
+
+/**
+ * This class extends the methods of the AbstractBuilder class to export the
+ * reaction network of a model as a bipartite graph of species and reactions,
+ * either in GraphML or in the DOT language of Graphviz. Each compartment
+ * becomes a cluster (a nested graph in GraphML) that contains its species and
+ * the reactions that are first listed for this compartment. Reactants point
+ * to their reactions, reactions point to their products and modifiers are
+ * connected by dashed edges. Nodes are written compartment by compartment,
+ * and the edges of all reactions follow in the section of reactions outside
+ * of the clusters because they may connect species of different
+ * compartments. Since a graph is only well-formed with all of these
+ * sections, they cannot be skipped; selecting compartments drops the edges to
+ * species that are not reported.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class GraphBuilder extends AbstractBuilder {
+
+  /**
+   * Supported graph formats
+   */
+  public enum Format {
+    /**
+     * The XML-based graph markup language
+     */
+    GRAPHML("graphml"),
+    /**
+     * The DOT language of Graphviz
+     */
+    DOT("dot");
+
+    private final String extension;
+
+
+    /**
+     * @param extension
+     */
+    private Format(String extension) {
+      this.extension = extension;
+    }
+
+
+    /**
+     * @return the usual file extension of this format
+     */
+    public String getExtension() {
+      return extension;
+    }
+  }
+
+  private static final String NEW_LINE          = "\n";
+  private Format              format            = Format.GRAPHML;
+  /**
+   * IDs of the reactions whose nodes have already been written
+   */
+  private final Set<String>   writtenReactions  = new HashSet<String>();
+  /**
+   * IDs of the species whose nodes have already been written
+   */
+  private final Set<String>   writtenSpecies    = new HashSet<String>();
+  /**
+   * Reactions whose nodes have been written but not yet their edges
+   */
+  private final List<Reaction> pendingReactions = new ArrayList<Reaction>();
+
+
+  /**
+   * @param format
+   *        the format of the graph, GraphML by default
+   */
+  public void setFormat(Format format) {
+    this.format = format;
+  }
+
+
+  /**
+   * @return the format of the graph
+   */
+  public Format getFormat() {
+    return format;
+  }
+
+
+  /**
+   * The sections that make up the clusters, nodes and edges of the graph are
+   * always included, regardless of the specification.
+   *
+   * @see AbstractBuilder#isIncluded(ReportSection)
+   */
+  @Override
+  public boolean isIncluded(ReportSection section) {
+    switch (section) {
+    case COMPARTMENT:
+    case SPECIES:
+    case REACTIONS:
+    case REACTION_DETAILS:
+      return true;
+    default:
+      return super.isIncluded(section);
+    }
+  }
+
+
+  @Override
+  public String createDocumentHead(SBMLDocument sbmlDocument,
+    Preprocessor preprocessor) {
+    writtenReactions.clear();
+    writtenSpecies.clear();
+    pendingReactions.clear();
+    StringBuilder sb = new StringBuilder();
+    if (format == Format.DOT) {
+      sb.append("digraph ");
+      sb.append(quoteDOT(getName(sbmlDocument)));
+      sb.append(" {");
+      sb.append(NEW_LINE);
+      sb.append("  node [shape=ellipse];");
+      sb.append(NEW_LINE);
+      return sb.toString();
+    }
+    sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    sb.append(NEW_LINE);
+    sb.append("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\"");
+    sb.append(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
+    sb.append(" xsi:schemaLocation=\"http://graphml.graphdrawing.org/xmlns");
+    sb.append(" http://graphml.graphdrawing.org/xmlns/1.0/graphml.xsd\">");
+    sb.append(NEW_LINE);
+    appendKey(sb, "label", "node", "string");
+    appendKey(sb, "kind", "node", "string");
+    appendKey(sb, "sboTerm", "node", "string");
+    appendKey(sb, "reversible", "node", "boolean");
+    appendKey(sb, "role", "edge", "string");
+    appendKey(sb, "stoichiometry", "edge", "double");
+    sb.append("  <graph id=");
+    sb.append(quoteXML(sbmlDocument.getModel().getId()));
+    sb.append(" edgedefault=\"directed\">");
+    sb.append(NEW_LINE);
+    return sb.toString();
+  }
+
+
+  /**
+   * Declares a GraphML attribute
+   *
+   * @param sb
+   * @param name
+   * @param domain
+   *        either node or edge
+   * @param type
+   */
+  private static void appendKey(StringBuilder sb, String name, String domain,
+    String type) {
+    sb.append("  <key id=\"");
+    sb.append(name);
+    sb.append("\" for=\"");
+    sb.append(domain);
+    sb.append("\" attr.name=\"");
+    sb.append(name);
+    sb.append("\" attr.type=\"");
+    sb.append(type);
+    sb.append("\"/>");
+    sb.append(NEW_LINE);
+  }
+
+
+  @Override
+  public String createCompartmentOverview(SBMLDocument sbmlDocument) {
+    return "";
+  }
+
+
+  @Override
+  public String createSingleCompartmentSection(
+    Preprocessor preprocessedSBMLdata, Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    if (format == Format.DOT) {
+      sb.append("  subgraph ");
+      sb.append(quoteDOT("cluster_" + compartment.getId()));
+      sb.append(" {");
+      sb.append(NEW_LINE);
+      sb.append("    label=");
+      sb.append(quoteDOT(getDescription(compartment)));
+      sb.append(';');
+      sb.append(NEW_LINE);
+      return sb.toString();
+    }
+    sb.append("    <node id=");
+    sb.append(quoteXML(compartment.getId()));
+    sb.append('>');
+    sb.append(NEW_LINE);
+    appendData(sb, "      ", "label", getDescription(compartment));
+    appendData(sb, "      ", "kind", "compartment");
+    if (compartment.isSetSBOTerm()) {
+      appendData(sb, "      ", "sboTerm", compartment.getSBOTermID());
+    }
+    sb.append("      <graph id=");
+    sb.append(quoteXML(compartment.getId() + ":"));
+    sb.append(" edgedefault=\"directed\">");
+    sb.append(NEW_LINE);
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createSpeciesSectionOfCompartment(
+    Map<String, List<Species>> mapCompartmentSpecies, Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    for (Species s : mapCompartmentSpecies.get(compartment.getId())) {
+      checkpoint(sb);
+      writtenSpecies.add(s.getId());
+      appendNode(sb, s, "species", null);
+    }
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createReactionSectionOfCompartment(
+    Map<String, List<Reaction>> mapCompartmentReactions,
+    Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    for (Reaction r : mapCompartmentReactions.get(compartment.getId())) {
+      checkpoint(sb);
+      if (writtenReactions.add(r.getId())) {
+        appendNode(sb, r, "reaction",
+          r.isSetReversible() ? Boolean.valueOf(r.getReversible()) : null);
+        pendingReactions.add(r);
+      }
+    }
+    // close the cluster of the compartment
+    if (format == Format.DOT) {
+      sb.append("  }");
+      sb.append(NEW_LINE);
+    } else {
+      sb.append("      </graph>");
+      sb.append(NEW_LINE);
+      sb.append("    </node>");
+      sb.append(NEW_LINE);
+    }
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createSectionOfReactions(List<Reaction> reactions) {
+    StringBuilder sb = new StringBuilder();
+    for (Reaction r : pendingReactions) {
+      checkpoint(sb);
+      for (SpeciesReference reactant : r.getListOfReactants()) {
+        appendEdge(sb, reactant.getSpecies(), r.getId(), "reactant",
+          reactant.isSetStoichiometry() ? reactant.getStoichiometry() : null);
+      }
+      for (SpeciesReference product : r.getListOfProducts()) {
+        appendEdge(sb, r.getId(), product.getSpecies(), "product",
+          product.isSetStoichiometry() ? product.getStoichiometry() : null);
+      }
+      if (r.isSetListOfModifiers()) {
+        for (ModifierSpeciesReference modifier : r.getListOfModifiers()) {
+          appendEdge(sb, modifier.getSpecies(), r.getId(), "modifier", null);
+        }
+      }
+    }
+    pendingReactions.clear();
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createDocumentFoot(Preprocessor preprocessor) {
+    if (format == Format.DOT) {
+      return "}" + NEW_LINE;
+    }
+    return "  </graph>" + NEW_LINE + "</graphml>" + NEW_LINE;
+  }
+
+
+  /**
+   * Appends a node within the cluster of the current compartment
+   *
+   * @param sb
+   * @param sBase
+   * @param kind
+   *        either species or reaction
+   * @param reversible
+   *        can be null
+   */
+  private void appendNode(StringBuilder sb, AbstractNamedSBase sBase,
+    String kind, Boolean reversible) {
+    boolean reaction = kind.equals("reaction");
+    if (format == Format.DOT) {
+      sb.append("    ");
+      sb.append(quoteDOT(sBase.getId()));
+      sb.append(" [label=");
+      sb.append(quoteDOT(getDescription(sBase)));
+      if (reaction) {
+        sb.append(", shape=box");
+      }
+      sb.append("];");
+      sb.append(NEW_LINE);
+      return;
+    }
+    sb.append("        <node id=");
+    sb.append(quoteXML(sBase.getId()));
+    sb.append('>');
+    sb.append(NEW_LINE);
+    appendData(sb, "          ", "label", getDescription(sBase));
+    appendData(sb, "          ", "kind", kind);
+    if (sBase.isSetSBOTerm()) {
+      appendData(sb, "          ", "sboTerm", sBase.getSBOTermID());
+    }
+    if (reversible != null) {
+      appendData(sb, "          ", "reversible", reversible.toString());
+    }
+    sb.append("        </node>");
+    sb.append(NEW_LINE);
+  }
+
+
+  /**
+   * Appends an edge outside of all clusters unless its species has not been
+   * written, e.g., because its compartment is not reported
+   *
+   * @param sb
+   * @param source
+   * @param target
+   * @param role
+   *        reactant, product or modifier
+   * @param stoichiometry
+   *        can be null
+   */
+  private void appendEdge(StringBuilder sb, String source, String target,
+    String role, Double stoichiometry) {
+    if (!writtenSpecies.contains(role.equals("product") ? target : source)) {
+      return;
+    }
+    if (format == Format.DOT) {
+      sb.append("  ");
+      sb.append(quoteDOT(source));
+      sb.append(" -> ");
+      sb.append(quoteDOT(target));
+      if (role.equals("modifier")) {
+        sb.append(" [style=dashed, arrowhead=odot]");
+      } else if ((stoichiometry != null)
+          && (stoichiometry.doubleValue() != 1d)) {
+        sb.append(" [label=");
+        sb.append(quoteDOT(stoichiometry.toString()));
+        sb.append(']');
+      }
+      sb.append(';');
+      sb.append(NEW_LINE);
+      return;
+    }
+    sb.append("    <edge source=");
+    sb.append(quoteXML(source));
+    sb.append(" target=");
+    sb.append(quoteXML(target));
+    sb.append('>');
+    sb.append(NEW_LINE);
+    appendData(sb, "      ", "role", role);
+    if (stoichiometry != null) {
+      appendData(sb, "      ", "stoichiometry", stoichiometry.toString());
+    }
+    sb.append("    </edge>");
+    sb.append(NEW_LINE);
+  }
+
+
+  /**
+   * Appends the value of a GraphML attribute
+   *
+   * @param sb
+   * @param indent
+   * @param key
+   * @param value
+   */
+  private static void appendData(StringBuilder sb, String indent, String key,
+    String value) {
+    sb.append(indent);
+    sb.append("<data key=\"");
+    sb.append(key);
+    sb.append("\">");
+    appendXML(sb, value);
+    sb.append("</data>");
+    sb.append(NEW_LINE);
+  }
+
+
+  /**
+   * Appends the given text with all characters escaped that have a special
+   * meaning in XML
+   *
+   * @param sb
+   * @param str
+   */
+  private static void appendXML(StringBuilder sb, String str) {
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      switch (c) {
+      case '&':
+        sb.append("&amp;");
+        break;
+      case '<':
+        sb.append("&lt;");
+        break;
+      case '>':
+        sb.append("&gt;");
+        break;
+      case '"':
+        sb.append("&quot;");
+        break;
+      default:
+        sb.append(c);
+      }
+    }
+  }
+
+
+  /**
+   * @param str
+   * @return the given text as quoted XML attribute value
+   */
+  private static String quoteXML(String str) {
+    StringBuilder sb = new StringBuilder(str.length() + 2);
+    sb.append('"');
+    appendXML(sb, str);
+    sb.append('"');
+    return sb.toString();
+  }
+
+
+  /**
+   * @param str
+   * @return the given text as quoted DOT identifier
+   */
+  private static String quoteDOT(String str) {
+    StringBuilder sb = new StringBuilder(str.length() + 2);
+    sb.append('"');
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if ((c == '"') || (c == '\\')) {
+        sb.append('\\');
+      } else if (c == '\n') {
+        sb.append("\\n");
+        continue;
+      }
+      sb.append(c);
+    }
+    sb.append('"');
+    return sb.toString();
+  }
+}
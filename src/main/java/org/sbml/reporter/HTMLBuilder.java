@@ -18,15 +18,18 @@
  */
 package org.sbml.reporter;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.sbml.jsbml.AbstractNamedSBase;
 import org.sbml.jsbml.Compartment;
-import org.sbml.jsbml.ListOf;
 import org.sbml.jsbml.Reaction;
 import org.sbml.jsbml.SBMLDocument;
 import org.sbml.jsbml.Species;
-import org.sbml.jsbml.ontology.Term;
 
 /**
  * This class extends the methods of the AbstractBuilder class to generate a
@@ -48,22 +51,172 @@ public class HTMLBuilder extends AbstractBuilder {
       "sectionCompartments";
   private static final String         idGlossary            = "glossary";
   private static final String         idReactions           = "reactions";
-  private static int                  sectionNumbering      = 0;
-  private static int                  subsectionNumbering   = 0;
-  private static final HTMLTranslator htmlTranslator        =
+  private int                         sectionNumbering      = 0;
+  private int                         subsectionNumbering   = 0;
+  private final HTMLTranslator        htmlTranslator        =
       new HTMLTranslator();
+  /**
+   * The data of the current report, which lists the reactions of each species
+   */
+  private Preprocessor                preprocessor;
+  /**
+   * Write an index file plus one file per compartment and one for reactions
+   */
+  private boolean                     splitPages            = false;
+  /**
+   * Write a search index next to the report and add a search box to it
+   */
+  private boolean                     searchIndex           = false;
+
+
+  /**
+   * @param splitPages
+   *        if true, the report is split into an index file, one file per
+   *        compartment and a file with the details of all reactions
+   */
+  public void setSplitPages(boolean splitPages) {
+    this.splitPages = splitPages;
+  }
+
+
+  /**
+   * @param searchIndex
+   *        if true, a prebuilt index over the IDs, names and SBO terms of all
+   *        compartments, species and reactions is written into a script next
+   *        to the report, which is queried by a search box at the top of each
+   *        page
+   */
+  public void setSearchIndex(boolean searchIndex) {
+    this.searchIndex = searchIndex;
+  }
+
+
+  @Override
+  public boolean requiresSearchIndex() {
+    return searchIndex;
+  }
+
+
+  /**
+   * @return the name of the script that contains the search index
+   */
+  private String getSearchScriptName() {
+    return getReportBaseName() + "-search.js";
+  }
+
+
+  /**
+   * Creates the search box, which loads the search index
+   *
+   * @return String
+   */
+  private String createSearchBox() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(HTMLTranslator.openTag("div", "class=\"search\""));
+    sb.append(HTMLTranslator.openTag("input", "type=\"search\"",
+      "id=\"searchInput\"",
+      "placeholder=\"Search compartments, species and reactions\""));
+    sb.append(HTMLTranslator.command("ul", "", "id=\"searchResults\""));
+    sb.append(HTMLTranslator.closeTag("div"));
+    sb.append(HTMLTranslator.command("script", "",
+      "src=\"" + getSearchScriptName() + "\"", "defer"));
+    return sb.toString();
+  }
+
+
+  @Override
+  public Map<String, String> createSupplementaryFiles(
+    Preprocessor preprocessor) {
+    if (!searchIndex) {
+      return super.createSupplementaryFiles(preprocessor);
+    }
+    SearchIndex index = preprocessor.getSearchIndex();
+    StringBuilder sb = new StringBuilder();
+    sb.append("var sbmlReportIndex = {\"d\":[");
+    for (int i = 0; i < index.size(); i++) {
+      AbstractNamedSBase sBase = index.getElement(i);
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append('[');
+      JSON.quote(sb, sBase.getElementName());
+      sb.append(',');
+      JSON.quote(sb, sBase.getId());
+      sb.append(',');
+      JSON.quote(sb, getDescription(sBase));
+      sb.append(',');
+      JSON.quote(sb, htmlTranslator.link(sBase.getId()));
+      sb.append(']');
+    }
+    Set<String> tokens = index.getTokens();
+    sb.append("],");
+    sb.append(System.lineSeparator());
+    sb.append("\"k\":[");
+    boolean first = true;
+    for (String token : tokens) {
+      if (!first) {
+        sb.append(',');
+      }
+      JSON.quote(sb, token);
+      first = false;
+    }
+    sb.append("],");
+    sb.append(System.lineSeparator());
+    sb.append("\"p\":[");
+    first = true;
+    for (String token : tokens) {
+      if (!first) {
+        sb.append(',');
+      }
+      sb.append(Arrays.toString(index.getPositions(token)).replace(" ", ""));
+      first = false;
+    }
+    sb.append("]};");
+    sb.append(System.lineSeparator());
+    sb.append(HTMLTranslator.getScript("/HTMLSearch.js"));
+    return Collections.singletonMap(getSearchScriptName(), sb.toString());
+  }
+
+
+  /**
+   * @param virtualTableThreshold
+   *        tables with more rows than this are rendered by an embedded script
+   *        from compact JSON data, a negative value disables this
+   * @see HTMLTranslator#setVirtualTableThreshold(int)
+   */
+  public void setVirtualTableThreshold(int virtualTableThreshold) {
+    htmlTranslator.setVirtualTableThreshold(virtualTableThreshold);
+  }
+
+
+  @Override
+  public void setMonitor(ReportMonitor monitor) {
+    super.setMonitor(monitor);
+    htmlTranslator.setMonitor(monitor);
+  }
 
 
   @Override
   public String createDocumentHead(SBMLDocument sbmlDocument,
     Preprocessor preprocessor) {
+    this.preprocessor = preprocessor;
     StringBuilder sb = new StringBuilder();
+    if (splitPages) {
+      htmlTranslator.setLinkTargets(
+        createLinkTargets(sbmlDocument, preprocessor), getReportFileName());
+    } else {
+      htmlTranslator.setLinkTargets(null, null);
+    }
+    htmlTranslator.setGlossaryEnabled(isIncluded(ReportSection.GLOSSARY));
     sb.append(htmlTranslator.initializeDocument());
     // print headline of document
     if (sbmlDocument.getModel().isSetName()) {
       sb.append(htmlTranslator.createHeading(sbmlDocument.getModel().getName(),
         1, idTop));
     }
+    if (searchIndex) {
+      sb.append(createSearchBox());
+    }
     // print creator(s)
     if (sbmlDocument.getHistory().isSetListOfCreators()) {
       sb.append(htmlTranslator.createSimpleText(
@@ -75,42 +228,86 @@ public class HTMLBuilder extends AbstractBuilder {
         "Date: " + AbstractBuilder.getDate(sbmlDocument)));
     }
     // show contents of sbml file at beginning of document
-    sb.append(
-      createContentOverview(sbmlDocument.getModel().getListOfCompartments()));
+    sb.append(createContentOverview(getSelectedCompartments(sbmlDocument)));
     return sb.toString();
   }
 
 
   /**
-   * Creates a ordered nested list of a given list of compartments
+   * Determine the file in which the anchor of each ID ends up if pages are
+   * split
    *
-   * @param compartments
-   * @return String
+   * @param sbmlDocument
+   * @param preprocessor
+   * @return map from IDs to file names
    */
+  private Map<String, String> createLinkTargets(SBMLDocument sbmlDocument,
+    Preprocessor preprocessor) {
+    Map<String, String> fileOfId = new HashMap<String, String>();
+    for (Compartment compartment : getSelectedCompartments(sbmlDocument)) {
+      String fileName = getFileName(ReportSection.COMPARTMENT, compartment);
+      fileOfId.put(compartment.getId(), fileName);
+      for (Species s : getSpeciesOfCompartment(preprocessor,
+        compartment.getId())) {
+        fileOfId.put(s.getId(), fileName);
+      }
+      // without the section of reactions, reactions spanning several
+      // compartments link to the first one
+      for (Reaction r : getReactionsOfCompartment(preprocessor,
+        compartment.getId())) {
+        if (!fileOfId.containsKey(r.getId())) {
+          fileOfId.put(r.getId(), fileName);
+        }
+      }
+    }
+    if (isIncluded(ReportSection.REACTION_DETAILS)) {
+      String fileName = getFileName(ReportSection.REACTION_DETAILS, null);
+      if (fileName == null) {
+        fileName = getReportFileName();
+      }
+      for (Reaction r : getSelectedReactions(sbmlDocument, preprocessor)) {
+        fileOfId.put(r.getId(), fileName);
+      }
+      fileOfId.put(idReactions, fileName);
+    }
+    return fileOfId;
+  }
+
+
   /**
+   * Creates a ordered nested list of a given list of compartments
+   *
    * @param compartments
-   * @return
+   * @return String
    */
-  private static String createContentOverview(
-    ListOf<Compartment> compartments) {
+  private String createContentOverview(List<Compartment> compartments) {
     StringBuilder sb = new StringBuilder();
     sb.append(htmlTranslator.createHeading("Contents", 2, idContentTable));
-    sb.append(htmlTranslator.openList(true));
-    sb.append(
-      htmlTranslator.createListEntry("Compartments", idSectionCompartments));
-    sb.append(htmlTranslator.openList(true));
-    for (Compartment compartment : compartments) {
-      sb.append(htmlTranslator.createListEntry(getDescription(compartment),
-        compartment.getId()));
-    }
-    sb.append(htmlTranslator.closeList(true));
-    sb.append(htmlTranslator.closeList(true));
-    sb.append(htmlTranslator.openList(true));
-    sb.append(htmlTranslator.createListEntryNoNr("Reactions", idReactions));
-    sb.append(htmlTranslator.closeList(true));
-    sb.append(htmlTranslator.openList(true));
-    sb.append(htmlTranslator.createListEntryNoNr("Glossary", idGlossary));
-    sb.append(htmlTranslator.closeList(true));
+    if (isIncluded(ReportSection.OVERVIEW)
+        || isIncluded(ReportSection.COMPARTMENT)) {
+      sb.append(htmlTranslator.openList(true));
+      sb.append(
+        htmlTranslator.createListEntry("Compartments", idSectionCompartments));
+      if (isIncluded(ReportSection.COMPARTMENT)) {
+        sb.append(htmlTranslator.openList(true));
+        for (Compartment compartment : compartments) {
+          sb.append(htmlTranslator.createListEntry(getDescription(compartment),
+            compartment.getId()));
+        }
+        sb.append(htmlTranslator.closeList(true));
+      }
+      sb.append(htmlTranslator.closeList(true));
+    }
+    if (isIncluded(ReportSection.REACTION_DETAILS)) {
+      sb.append(htmlTranslator.openList(true));
+      sb.append(htmlTranslator.createListEntryNoNr("Reactions", idReactions));
+      sb.append(htmlTranslator.closeList(true));
+    }
+    if (isIncluded(ReportSection.GLOSSARY)) {
+      sb.append(htmlTranslator.openList(true));
+      sb.append(htmlTranslator.createListEntryNoNr("Glossary", idGlossary));
+      sb.append(htmlTranslator.closeList(true));
+    }
     return sb.toString();
   }
 
@@ -122,11 +319,17 @@ public class HTMLBuilder extends AbstractBuilder {
     sb.append(
       htmlTranslator.createHeading(numberedHeading, 2, idSectionCompartments));
     int compartmentCount = sbmlDocument.getModel().getCompartmentCount();
-    sb.append(
-      htmlTranslator.createSimpleText("This model contains " + compartmentCount
-        + " compartments that are summarized in the table below."));
-    sb.append(createTableOfCompartments(
-      sbmlDocument.getModel().getListOfCompartments(), htmlTranslator));
+    List<Compartment> compartments = getSelectedCompartments(sbmlDocument);
+    if (compartments.size() < compartmentCount) {
+      sb.append(htmlTranslator.createSimpleText("This model contains "
+          + compartmentCount + " compartments, " + compartments.size()
+          + " of which are summarized in the table below."));
+    } else {
+      sb.append(htmlTranslator.createSimpleText("This model contains "
+          + compartmentCount
+          + " compartments that are summarized in the table below."));
+    }
+    sb.append(createTableOfCompartments(compartments, htmlTranslator));
     return sb.toString();
   }
 
@@ -148,6 +351,7 @@ public class HTMLBuilder extends AbstractBuilder {
     sb.append(htmlTranslator.openList(false));
     for (Species s : AbstractBuilder.getSpeciesOfCompartment(
       preprocessedSBMLdata, compartment.getId())) {
+      checkpoint(sb);
       sb.append(htmlTranslator.createListEntry(getDescription(s), s.getId()));
     }
     sb.append(htmlTranslator.closeList(false));
@@ -157,6 +361,7 @@ public class HTMLBuilder extends AbstractBuilder {
     sb.append(htmlTranslator.openList(false));
     for (Reaction r : AbstractBuilder.getReactionsOfCompartment(
       preprocessedSBMLdata, compartment.getId())) {
+      checkpoint(sb);
       sb.append(htmlTranslator.createListEntry(getDescription(r), r.getId()));
     }
     sb.append(htmlTranslator.closeList(false));
@@ -172,7 +377,9 @@ public class HTMLBuilder extends AbstractBuilder {
     sb.append(
       htmlTranslator.createHeading(numbering + "3 Species Definitions", 4));
     sb.append(createTableOfSpecies(compartment,
-      mapCompartmentSpecies.get(compartment.getId()), htmlTranslator));
+      mapCompartmentSpecies.get(compartment.getId()), htmlTranslator,
+      preprocessor, isIncluded(ReportSection.REACTIONS)
+          || isIncluded(ReportSection.REACTION_DETAILS)));
     return sb.toString();
   }
 
@@ -186,27 +393,83 @@ public class HTMLBuilder extends AbstractBuilder {
     sb.append(
       htmlTranslator.createHeading(numbering + "4 Reactions Definitions", 4));
     sb.append(createTableOfReactions(compartment,
-      mapCompartmentReactions.get(compartment.getId()), htmlTranslator));
+      mapCompartmentReactions.get(compartment.getId()), htmlTranslator,
+      isIncluded(ReportSection.REACTION_DETAILS)));
     return sb.toString();
   }
 
 
   @Override
-  public String createSectionOfReactions(
-    Map<String, List<Reaction>> mapCompartmentReactions,
-    Compartment compartment) {
+  public String createSectionOfReactions(List<Reaction> reactions) {
     StringBuilder sb = new StringBuilder();
     sb.append(htmlTranslator.createHeading("Reactions", 1, idReactions));
-    sb.append(createSectionOfReactions(compartment,
-      mapCompartmentReactions.get(compartment.getId()), htmlTranslator));
+    sb.append(createSectionOfReactions(reactions, htmlTranslator,
+      isIncluded(ReportSection.KINETIC_LAWS)));
     return sb.toString();
   }
 
 
+  @Override
+  public String getFileName(ReportSection section, Compartment compartment) {
+    if (!splitPages) {
+      return null;
+    }
+    if (section == ReportSection.REACTION_DETAILS) {
+      // after the last compartment, so it cannot go into the index file
+      return getReportBaseName() + "_reactions.html";
+    }
+    // the prefix keeps a compartment with the ID reactions apart
+    StringBuilder sb = new StringBuilder();
+    sb.append(getReportBaseName());
+    sb.append("_c_");
+    sb.append(compartment.getId());
+    sb.append(".html");
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createFileHead(ReportSection section, Compartment compartment,
+    String fileName) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(htmlTranslator.initializeDocument());
+    sb.append(HTMLTranslator.command("p",
+      htmlTranslator.createListEntryNoNr("Contents", idContentTable)));
+    if (searchIndex) {
+      sb.append(createSearchBox());
+    }
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createFileFoot(String fileName) {
+    return htmlTranslator.terminateDocument();
+  }
+
+
+  @Override
+  public String createFileReference(ReportSection section,
+    Compartment compartment, String fileName) {
+    if (section != ReportSection.REACTION_DETAILS) {
+      // compartment files are linked from the table of contents
+      return "";
+    }
+    StringBuilder attr = new StringBuilder();
+    attr.append("href=\"");
+    attr.append(fileName);
+    attr.append("\"");
+    return HTMLTranslator.command("p", HTMLTranslator.command("a",
+      htmlTranslator.mask("Reactions"), attr.toString()));
+  }
+
+
   @Override
   public String createDocumentFoot(Preprocessor preprocessor) {
     StringBuilder sb = new StringBuilder();
-    sb.append(setGlossary(preprocessor));
+    if (isIncluded(ReportSection.GLOSSARY)) {
+      sb.append(setGlossary(preprocessor));
+    }
     sb.append(htmlTranslator.terminateDocument());
     return sb.toString();
   }
@@ -218,14 +481,14 @@ public class HTMLBuilder extends AbstractBuilder {
    * @param preprocessor
    * @return String
    */
-  private static String setGlossary(Preprocessor preprocessor) {
+  private String setGlossary(Preprocessor preprocessor) {
     StringBuilder sb = new StringBuilder();
 	  if(preprocessor.getSboTerms().size()>0)
 	  {
 
 
 		  sb.append(htmlTranslator.createHeading("Glossary", 1, idGlossary));
-		  for (Term sboTerm : preprocessor.getSboTerms()) {
+		  for (SBOTerm sboTerm : preprocessor.getSboTerms()) {
 			  StringBuilder id = new StringBuilder();
 			  id.append("id=\"");
 			  id.append(sboTerm.getId());
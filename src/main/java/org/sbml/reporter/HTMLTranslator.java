@@ -18,9 +18,16 @@
  */
 package org.sbml.reporter;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.sbml.jsbml.ASTNode;
 
@@ -35,6 +42,44 @@ import org.sbml.jsbml.ASTNode;
  */
 public class HTMLTranslator extends AbstractTranslator {
 
+  /**
+   * Maps IDs to the names of the files that contain them if a report is split
+   * into several files, null if the whole report is one file
+   */
+  private Map<String, String> fileOfId;
+  /**
+   * File that contains all IDs not found in {@link #fileOfId}
+   */
+  private String              defaultFile;
+  /**
+   * Tables with more rows than this are written as embedded JSON data that a
+   * script renders on demand; a negative value disables this
+   */
+  private int                 virtualTableThreshold = -1;
+  /**
+   * True while the rows of a virtual table are written
+   */
+  private boolean             virtualTable          = false;
+  /**
+   * Number of rows (including the heading) written to the current virtual
+   * table
+   */
+  private int                 virtualTableRows;
+  /**
+   * Number of virtual tables in the current document
+   */
+  private int                 virtualTableCount;
+  /**
+   * Scripts that have already been loaded from resources
+   */
+  private static final Map<String, String> scripts =
+      new HashMap<String, String>();
+  /**
+   * Renders kinetic laws as presentation MathML
+   */
+  private final MathMLRenderer mathMLRenderer = new MathMLRenderer();
+
+
   public HTMLTranslator() {
     super();
     loadProperties("/HTMLMasking.xml");
@@ -45,6 +90,7 @@ public class HTMLTranslator extends AbstractTranslator {
   @Override
   public String initializeDocument() {
     StringBuilder sb = new StringBuilder();
+    virtualTableCount = 0;
     sb.append("<!DOCTYPE html>");
     sb.append(System.lineSeparator());
     sb.append(openTag("html", "lang=\"en\""));
@@ -118,9 +164,123 @@ public class HTMLTranslator extends AbstractTranslator {
   }
 
 
+  @Override
+  public String openTable(String caption, int numColumns, int numRows) {
+    if ((virtualTableThreshold < 0) || (numRows <= virtualTableThreshold)) {
+      return openTable(caption, numColumns);
+    }
+    virtualTable = true;
+    virtualTableRows = 0;
+    virtualTableCount++;
+    StringBuilder sb = new StringBuilder();
+    sb.append(openTag("div", "class=\"vt\""));
+    sb.append(command("p", mask(caption), "class=\"vt-caption\""));
+    sb.append("<script type=\"application/json\">[");
+    return sb.toString();
+  }
+
+
+  /**
+   * @param virtualTableThreshold
+   *        tables with more rows than this number are written as compact JSON
+   *        data that is rendered by an embedded script, which only creates
+   *        the rows currently visible and allows to sort and filter them. A
+   *        negative value (default) disables this.
+   */
+  public void setVirtualTableThreshold(int virtualTableThreshold) {
+    this.virtualTableThreshold = virtualTableThreshold;
+  }
+
+
+  @Override
+  public void setMonitor(ReportMonitor monitor) {
+    super.setMonitor(monitor);
+    mathMLRenderer.setMonitor(monitor);
+  }
+
+
+  /**
+   * Append one row of a virtual table as JSON array
+   *
+   * @param sb
+   * @param contents
+   *        HTML representation of each cell
+   */
+  private void appendVirtualRow(StringBuilder sb, List<String> contents) {
+    if (virtualTableRows++ > 0) {
+      sb.append(',');
+    }
+    sb.append(System.lineSeparator());
+    sb.append('[');
+    for (int i = 0; i < contents.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      JSON.quote(sb, contents.get(i));
+    }
+    sb.append(']');
+  }
+
+
+  /**
+   * Create the content of a cell without the enclosing table cell element
+   *
+   * @param cell
+   * @return String
+   */
+  private String createCellContent(Cell cell) {
+    if (cell.isMarkup) {
+      return cell.content;
+    } else if (cell.id == null) {
+      return mask(cell.content);
+    } else if (cell.isClickable) {
+      return command("a", mask(cell.content), href(cell.id));
+    }
+    return "<span id=\"" + cell.id + "\">" + mask(cell.content) + "</span>";
+  }
+
+
+  /**
+   * Load a script from the resources, each script is only read once
+   *
+   * @param resource
+   *        the name of the resource, e.g., "/HTMLVirtualTable.js"
+   * @return String
+   */
+  public static synchronized String getScript(String resource) {
+    String script = scripts.get(resource);
+    if (script == null) {
+      StringBuilder sb = new StringBuilder();
+      try (Reader reader = new InputStreamReader(
+        HTMLTranslator.class.getResourceAsStream(resource),
+        StandardCharsets.UTF_8)) {
+        char buffer[] = new char[4096];
+        int length;
+        while ((length = reader.read(buffer)) > 0) {
+          sb.append(buffer, 0, length);
+        }
+      } catch (IOException exc) {
+        throw new IllegalStateException(
+          "Could not load the script " + resource + ".", exc);
+      }
+      script = sb.toString();
+      scripts.put(resource, script);
+    }
+    return script;
+  }
+
+
   @Override
   public String createTableHeading(String... content) {
     StringBuilder sb = new StringBuilder();
+    if (virtualTable) {
+      List<String> contents = new ArrayList<String>(content.length);
+      for (String headline : content) {
+        contents.add(mask(headline));
+      }
+      appendVirtualRow(sb, contents);
+      return sb.toString();
+    }
     sb.append(openTag("tr"));
     for (String headline : content) {
       sb.append(command("th", mask(headline)));
@@ -133,6 +293,14 @@ public class HTMLTranslator extends AbstractTranslator {
   @Override
   public String createTableRow(List<Cell> cells) {
     StringBuilder sb = new StringBuilder();
+    if (virtualTable) {
+      List<String> contents = new ArrayList<String>(cells.size());
+      for (Cell cell : cells) {
+        contents.add(createCellContent(cell));
+      }
+      appendVirtualRow(sb, contents);
+      return sb.toString();
+    }
     sb.append(openTag("tr"));
     for (Cell cell : cells) {
       sb.append(createCell(cell));
@@ -150,6 +318,14 @@ public class HTMLTranslator extends AbstractTranslator {
 
   @Override
   public String closeTable() {
+    if (virtualTable) {
+      virtualTable = false;
+      StringBuilder sb = new StringBuilder();
+      sb.append("]</script>");
+      sb.append(System.lineSeparator());
+      sb.append(closeTag("div"));
+      return sb.toString();
+    }
     return closeTag("table");
   }
 
@@ -172,21 +348,13 @@ public class HTMLTranslator extends AbstractTranslator {
 
   @Override
   public String createListEntry(String content, String id) {
-    StringBuilder attr = new StringBuilder();
-    attr.append("href=\"#");
-    attr.append(id);
-    attr.append("\"");
-    return command("li", command("a", mask(content), attr.toString()));
+    return command("li", command("a", mask(content), href(id)));
   }
 
 
   @Override
   public String createListEntryNoNr(String content, String id) {
-    StringBuilder attr = new StringBuilder();
-    attr.append("href=\"#");
-    attr.append(id);
-    attr.append("\"");
-    return command("a", mask(content), attr.toString());
+    return command("a", mask(content), href(id));
   }
 
 
@@ -203,6 +371,9 @@ public class HTMLTranslator extends AbstractTranslator {
   @Override
   public String terminateDocument() {
     StringBuilder sb = new StringBuilder();
+    if (virtualTableCount > 0) {
+      sb.append(command("script", getScript("/HTMLVirtualTable.js")));
+    }
     sb.append(closeTag("body"));
     sb.append(closeTag("html"));
     return sb.toString();
@@ -220,14 +391,12 @@ public class HTMLTranslator extends AbstractTranslator {
     StringBuilder tag = new StringBuilder();
     tag.append("t");
     tag.append(mode);
-    if (cell.id != null) {
-      StringBuilder attr = new StringBuilder();
+    if (cell.isMarkup) {
+      return command(tag.toString(), cell.content);
+    } else if (cell.id != null) {
       if (cell.isClickable) {
-        attr.append("href=\"#");
-        attr.append(cell.id);
-        attr.append("\"");
         return command(tag.toString(),
-          command("a", mask(cell.content), attr.toString()));
+          command("a", mask(cell.content), href(cell.id)));
       } else {
         return "<t" + mode + " id=\"" + cell.id + "\">" + mask(cell.content)
         + "</a>" + "</t" + mode + ">\r\n";
@@ -238,6 +407,55 @@ public class HTMLTranslator extends AbstractTranslator {
   }
 
 
+  /**
+   * Define where links point to if a report is split into several files
+   *
+   * @param fileOfId
+   *        maps IDs to the names of the files that contain them, null if all
+   *        IDs are within the same file
+   * @param defaultFile
+   *        the file of all IDs that are not contained in the map
+   */
+  public void setLinkTargets(Map<String, String> fileOfId,
+    String defaultFile) {
+    this.fileOfId = fileOfId;
+    this.defaultFile = defaultFile;
+  }
+
+
+  /**
+   * Create the URL of a link to the given ID
+   *
+   * @param id
+   * @return String
+   */
+  public String link(String id) {
+    StringBuilder url = new StringBuilder();
+    if (fileOfId != null) {
+      String file = fileOfId.get(id);
+      url.append(file != null ? file : defaultFile);
+    }
+    url.append('#');
+    url.append(id);
+    return url.toString();
+  }
+
+
+  /**
+   * Create the href attribute of a link to the given ID
+   *
+   * @param id
+   * @return String
+   */
+  protected String href(String id) {
+    StringBuilder attr = new StringBuilder();
+    attr.append("href=\"");
+    attr.append(link(id));
+    attr.append("\"");
+    return attr.toString();
+  }
+
+
   /**
    * Helper class that constructs a HTML command from tag, argument and
    * attributes
@@ -331,11 +549,13 @@ public class HTMLTranslator extends AbstractTranslator {
 
   @Override
   public String setGlossaryLink(String content, String id) {
-    StringBuilder attr = new StringBuilder();
-    attr.append("href=\"#");
-    attr.append(id);
-    attr.append("\"");
-    return command("a", content, attr.toString());
+    return command("a", content, href(id));
+  }
+
+
+  @Override
+  public String createLink(String content, String id) {
+    return command("a", mask(content), href(id));
   }
 
 
@@ -353,9 +573,16 @@ public class HTMLTranslator extends AbstractTranslator {
 
   @Override
   public String kineticLaw(ASTNode law) {
-    String lawHTML;
-    lawHTML = law.toFormula();
-    return lawHTML;
+    return mathMLRenderer.render(law);
+  }
+
+
+  @Override
+  public void appendKineticLaw(StringBuilder sb, ASTNode law) {
+    sb.append("<li>");
+    mathMLRenderer.appendFormula(sb, law);
+    sb.append("</li>");
+    sb.append(System.lineSeparator());
   }
 
 
@@ -0,0 +1,242 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import org.sbml.jsbml.ASTNode;
+
+/**
+ * This class renders abstract syntax trees of mathematical expressions as
+ * plain-text formulas in infix notation, similar to the formulas of SBML
+ * Level&nbsp;3. Unlike JSBML's recursive {@link ASTNode#toFormula()}, it can
+ * render trees of any depth.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class InfixMathRenderer extends AbstractMathRenderer {
+
+  @Override
+  protected String openFormula() {
+    return "";
+  }
+
+
+  @Override
+  protected String closeFormula() {
+    return "";
+  }
+
+
+  @Override
+  protected String openParenthesis() {
+    return "(";
+  }
+
+
+  @Override
+  protected String closeParenthesis() {
+    return ")";
+  }
+
+
+  @Override
+  protected int getPrecedence(ASTNode node) {
+    switch (node.getType()) {
+    case DIVIDE:
+      return PRECEDENCE_PRODUCT;
+    case LOGICAL_XOR:
+    case FUNCTION_EXP:
+    case FUNCTION_FACTORIAL:
+      // written as function calls
+      return PRECEDENCE_ATOM;
+    case REAL_E:
+      return node.getMantissa() < 0d ? PRECEDENCE_NEGATION : PRECEDENCE_ATOM;
+    default:
+      return super.getPrecedence(node);
+    }
+  }
+
+
+  @Override
+  protected boolean needsParentheses(ASTNode parent, int index,
+    ASTNode operand) {
+    switch (parent.getType()) {
+    case DIVIDE:
+      return (index == 0) ? getPrecedence(operand) < PRECEDENCE_PRODUCT
+        : getPrecedence(operand) <= PRECEDENCE_PRODUCT;
+    case POWER:
+    case FUNCTION_POWER:
+      if (index > 0) {
+        return getPrecedence(operand) < PRECEDENCE_ATOM;
+      }
+      return super.needsParentheses(parent, index, operand);
+    case LOGICAL_XOR:
+    case FUNCTION_FACTORIAL:
+      return false;
+    default:
+      return super.needsParentheses(parent, index, operand);
+    }
+  }
+
+
+  /**
+   * @param number
+   * @return the representation of given real number
+   */
+  private static String formatReal(double number) {
+    if (Double.isNaN(number)) {
+      return "NaN";
+    } else if (Double.isInfinite(number)) {
+      return number < 0d ? "-INF" : "INF";
+    }
+    return formatNumber(number);
+  }
+
+
+  /**
+   * @param name
+   *        can be {@code null}
+   * @param defaultName
+   * @return the given name or the default name if it is not set
+   */
+  private static String getName(String name, String defaultName) {
+    return (name != null) && !name.isEmpty() ? name : defaultName;
+  }
+
+
+  @Override
+  protected String prefix(ASTNode node, int numOperands) {
+    switch (node.getType()) {
+    case NAME:
+      return getName(node.getName(), "");
+    case NAME_TIME:
+      return getName(node.getName(), "time");
+    case NAME_AVOGADRO:
+      return getName(node.getName(), "avogadro");
+    case CONSTANT_E:
+      return "exponentiale";
+    case CONSTANT_PI:
+      return "pi";
+    case CONSTANT_TRUE:
+      return "true";
+    case CONSTANT_FALSE:
+      return "false";
+    case INTEGER:
+      return Integer.toString(node.getInteger());
+    case REAL:
+      return formatReal(node.getReal());
+    case REAL_E:
+      return formatReal(node.getMantissa()) + "e" + node.getExponent();
+    case RATIONAL:
+      return "(" + node.getNumerator() + "/" + node.getDenominator() + ")";
+    case PLUS:
+    case TIMES:
+    case DIVIDE:
+    case POWER:
+    case FUNCTION_POWER:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+      return "";
+    case MINUS:
+      return numOperands == 1 ? "-" : "";
+    case LOGICAL_NOT:
+      return "!";
+    case LOGICAL_XOR:
+      return "xor(";
+    case FUNCTION_ROOT:
+      return (numOperands == 2) ? "root(" : "sqrt(";
+    case FUNCTION_LOG:
+      return (numOperands == 2) ? "log(" : "log10(";
+    default:
+      return getFunctionName(node) + "(";
+    }
+  }
+
+
+  @Override
+  protected String separator(ASTNode node, int index) {
+    switch (node.getType()) {
+    case PLUS:
+      return " + ";
+    case MINUS:
+      return " - ";
+    case TIMES:
+      return " * ";
+    case DIVIDE:
+      return " / ";
+    case POWER:
+    case FUNCTION_POWER:
+      return "^";
+    case LOGICAL_AND:
+      return " && ";
+    case LOGICAL_OR:
+      return " || ";
+    case RELATIONAL_EQ:
+      return " == ";
+    case RELATIONAL_GEQ:
+      return " >= ";
+    case RELATIONAL_GT:
+      return " > ";
+    case RELATIONAL_LEQ:
+      return " <= ";
+    case RELATIONAL_LT:
+      return " < ";
+    case RELATIONAL_NEQ:
+      return " != ";
+    case LOGICAL_NOT:
+      return "";
+    default:
+      return ", ";
+    }
+  }
+
+
+  @Override
+  protected String suffix(ASTNode node, int numOperands) {
+    switch (node.getType()) {
+    case PLUS:
+    case TIMES:
+    case MINUS:
+    case DIVIDE:
+    case POWER:
+    case FUNCTION_POWER:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_NOT:
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+      return "";
+    default:
+      if (isLeaf(node)) {
+        return "";
+      }
+      return ")";
+    }
+  }
+}
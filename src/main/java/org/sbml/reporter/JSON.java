@@ -0,0 +1,101 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+/**
+ * This class provides helper functions to write data in JSON format
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public final class JSON {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+
+  /**
+   * This class only provides static methods
+   */
+  private JSON() {
+  }
+
+
+  /**
+   * Append given string as a quoted JSON string. Besides the characters that
+   * JSON requires to be escaped, '&lt;' is escaped too, so that the result can
+   * safely be embedded within a HTML script element.
+   *
+   * @param sb
+   * @param str
+   *        can be {@code null}
+   * @return the given StringBuilder
+   */
+  public static StringBuilder quote(StringBuilder sb, String str) {
+    if (str == null) {
+      sb.append("null");
+      return sb;
+    }
+    sb.append('"');
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      switch (c) {
+      case '"':
+        sb.append("\\\"");
+        break;
+      case '\\':
+        sb.append("\\\\");
+        break;
+      case '\n':
+        sb.append("\\n");
+        break;
+      case '\r':
+        sb.append("\\r");
+        break;
+      case '\t':
+        sb.append("\\t");
+        break;
+      default:
+        if ((c < 0x20) || (c == '<') || (c == '\u2028')
+            || (c == '\u2029')) {
+          sb.append("\\u");
+          sb.append(HEX[(c >> 12) & 0xF]);
+          sb.append(HEX[(c >> 8) & 0xF]);
+          sb.append(HEX[(c >> 4) & 0xF]);
+          sb.append(HEX[c & 0xF]);
+        } else {
+          sb.append(c);
+        }
+      }
+    }
+    sb.append('"');
+    return sb;
+  }
+
+
+  /**
+   * Create a quoted JSON string
+   *
+   * @param str
+   * @return String
+   */
+  public static String quote(String str) {
+    return quote(new StringBuilder(str == null ? 4 : str.length() + 2), str)
+        .toString();
+  }
+}
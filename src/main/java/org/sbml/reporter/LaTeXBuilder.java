@@ -26,7 +26,6 @@ import org.sbml.jsbml.Compartment;
 import org.sbml.jsbml.Reaction;
 import org.sbml.jsbml.SBMLDocument;
 import org.sbml.jsbml.Species;
-import org.sbml.jsbml.ontology.Term;
 
 /**
  * This class extends the methods of the AbstractBuilder class to generate a
@@ -42,13 +41,146 @@ import org.sbml.jsbml.ontology.Term;
  */
 public class LaTeXBuilder extends AbstractBuilder {
 
-  private final static LaTeXTranslator laTeXTranslator = new LaTeXTranslator();
+  private final LaTeXTranslator        laTeXTranslator  =
+      new LaTeXTranslator();
+  /**
+   * The data of the current report, which lists the reactions of each species
+   */
+  private Preprocessor                 preprocessor;
+  /**
+   * Write a master file that includes one file per compartment and a separate
+   * file for the chapter of reactions
+   */
+  private boolean                      chunked          = false;
+
+
+  /**
+   * @param chunked
+   *        if true, the report becomes a master file that includes one file
+   *        per compartment plus one file for all reactions, so that TeX can
+   *        rebuild single chunks selected with \includeonly
+   */
+  public void setChunked(boolean chunked) {
+    this.chunked = chunked;
+  }
+
+
+  /**
+   * @param compileFast
+   *        if true, numbers are rounded while writing the report and tables are
+   *        written with precomputed column widths in chunks of bounded size,
+   *        which reduces the number and duration of TeX runs
+   * @see LaTeXTranslator#setCompileFast(boolean)
+   */
+  public void setCompileFast(boolean compileFast) {
+    laTeXTranslator.setCompileFast(compileFast);
+  }
+
+
+  /**
+   * @param inlineGlossary
+   *        if true, the glossary of SBO terms is written as a chapter of the
+   *        report itself, so that no makeglossaries run is needed
+   */
+  public void setInlineGlossary(boolean inlineGlossary) {
+    laTeXTranslator.setInlineGlossary(inlineGlossary);
+  }
+
+
+  @Override
+  public void setMonitor(ReportMonitor monitor) {
+    super.setMonitor(monitor);
+    laTeXTranslator.setMonitor(monitor);
+  }
+
+
+  /**
+   * @return the name of the file that contains the chapter of reactions
+   */
+  private String getReactionsFileName() {
+    return getReportBaseName() + "_reactions.tex";
+  }
+
+
+  @Override
+  public String getFileName(ReportSection section, Compartment compartment) {
+    if (!chunked) {
+      return null;
+    }
+    if (section == ReportSection.REACTION_DETAILS) {
+      return getReactionsFileName();
+    }
+    // the prefix keeps a compartment with the ID reactions apart
+    return getReportBaseName() + "_c_" + compartment.getId() + ".tex";
+  }
+
+
+  /**
+   * @param fileName
+   * @return the name of the given file without its extension as expected by
+   *         \include
+   */
+  private static String stripExtension(String fileName) {
+    return fileName.substring(0, fileName.length() - ".tex".length());
+  }
+
+
+  @Override
+  public String createFileHead(ReportSection section, Compartment compartment,
+    String fileName) {
+    return "% This file is included by " + getReportFileName()
+        + System.lineSeparator();
+  }
+
+
+  @Override
+  public String createFileReference(ReportSection section,
+    Compartment compartment, String fileName) {
+    return LaTeXTranslator.commandNoOptions("include",
+      stripExtension(fileName));
+  }
+
+
+  /**
+   * Lists all included files as a commented \includeonly command, which can
+   * be activated and shortened to typeset only some chunks of the report
+   *
+   * @param sbmlDocument
+   * @return String
+   */
+  private String createIncludeOnly(SBMLDocument sbmlDocument) {
+    StringBuilder sb = new StringBuilder();
+    List<String> files = new ArrayList<String>();
+    if (isIncluded(ReportSection.COMPARTMENT)
+        || isIncluded(ReportSection.SPECIES)
+        || isIncluded(ReportSection.REACTIONS)) {
+      for (Compartment compartment : getSelectedCompartments(sbmlDocument)) {
+        files.add(stripExtension(
+          getFileName(ReportSection.COMPARTMENT, compartment)));
+      }
+    }
+    if (isIncluded(ReportSection.REACTION_DETAILS)) {
+      files.add(stripExtension(getReactionsFileName()));
+    }
+    sb.append("%\\includeonly{");
+    for (int i = 0; i < files.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(files.get(i));
+    }
+    sb.append('}');
+    sb.append(System.lineSeparator());
+    return sb.toString();
+  }
 
 
   @Override
   public String createDocumentHead(SBMLDocument sbmlDocument,
     Preprocessor preprocessor) {
+    this.preprocessor = preprocessor;
     StringBuilder sb = new StringBuilder();
+    laTeXTranslator.setGlossaryEnabled(isIncluded(ReportSection.GLOSSARY));
     sb.append(laTeXTranslator.setDocumentclass("scrreprt"));
     // set packages
     sb.append(laTeXTranslator.setUsePackageWithOption("inputenc", "utf8"));
@@ -57,9 +189,12 @@ public class LaTeXBuilder extends AbstractBuilder {
     sb.append(laTeXTranslator.setUsePackages("amsmath", "tabu", "float",
       "mathptmx", "cleveref", "booktabs", "longtable", "hyperref", "siunitx",
         "amsfonts"));
-    sb.append(laTeXTranslator.setUsePackageWithOption("glossaries", "toc"));
-    // make glossary
-    sb.append(setGlossary(preprocessor));
+    if (laTeXTranslator.isGlossaryEnabled()
+        && !laTeXTranslator.isInlineGlossary()) {
+      sb.append(laTeXTranslator.setUsePackageWithOption("glossaries", "toc"));
+      // make glossary
+      sb.append(setGlossary(preprocessor));
+    }
     // set title
     sb.append(laTeXTranslator.setTitle(AbstractBuilder.getName(sbmlDocument)));
     // set list of creators
@@ -71,6 +206,9 @@ public class LaTeXBuilder extends AbstractBuilder {
     if (sbmlDocument.getHistory().isSetCreatedDate()) {
       sb.append(laTeXTranslator.setDate(AbstractBuilder.getDate(sbmlDocument)));
     }
+    if (chunked) {
+      sb.append(createIncludeOnly(sbmlDocument));
+    }
     sb.append(laTeXTranslator.initializeDocument());
     return sb.toString();
   }
@@ -82,10 +220,10 @@ public class LaTeXBuilder extends AbstractBuilder {
    * @param preprocessor
    * @return String
    */
-  private static String setGlossary(Preprocessor preprocessor) {
+  private String setGlossary(Preprocessor preprocessor) {
     StringBuilder sb = new StringBuilder();
     sb.append(LaTeXTranslator.commandNoOptions("makeglossaries"));
-    for (Term sboTerm : preprocessor.getSboTerms()) {
+    for (SBOTerm sboTerm : preprocessor.getSboTerms()) {
       StringBuilder description = new StringBuilder();
       description.append(sboTerm.getName());
       description.append(". ");
@@ -122,12 +260,18 @@ public class LaTeXBuilder extends AbstractBuilder {
   public String createCompartmentOverview(SBMLDocument sbmlDocument) {
     StringBuilder sb = new StringBuilder();
     sb.append(laTeXTranslator.createHeading("Compartments", 1));
+    List<Compartment> compartments = getSelectedCompartments(sbmlDocument);
     String text = "This model contains "
         + sbmlDocument.getModel().getListOfCompartments().size()
-        + " compartment(s) that is/are summarized in the table below. \n";
+        + " compartment(s)";
+    if (compartments.size() < sbmlDocument.getModel().getCompartmentCount()) {
+      text += ", " + compartments.size() + " of which are";
+    } else {
+      text += " that is/are";
+    }
+    text += " summarized in the table below. \n";
     sb.append(laTeXTranslator.createSimpleText(text));
-    sb.append(createTableOfCompartments(
-      sbmlDocument.getModel().getListOfCompartments(), laTeXTranslator));
+    sb.append(createTableOfCompartments(compartments, laTeXTranslator));
     return sb.toString();
   }
 
@@ -148,6 +292,7 @@ public class LaTeXBuilder extends AbstractBuilder {
     List<Cell> cells = new ArrayList<Cell>();
     for (Species s : AbstractBuilder.getSpeciesOfCompartment(
       preprocessedSBMLdata, compartment.getId())) {
+      laTeXTranslator.checkpoint(sb);
       cells.add(new Cell(getDescription(s), false, s.getId(), true));
       sb.append(laTeXTranslator.createTableRow(cells));
       cells.clear();
@@ -160,6 +305,7 @@ public class LaTeXBuilder extends AbstractBuilder {
     sb.append(laTeXTranslator.createTableHeading("Reaction"));
     for (Reaction r : AbstractBuilder.getReactionsOfCompartment(
       preprocessedSBMLdata, compartment.getId())) {
+      laTeXTranslator.checkpoint(sb);
       cells.add(new Cell(getDescription(r), false, r.getId(), true));
       sb.append(laTeXTranslator.createTableRow(cells));
       cells.clear();
@@ -175,7 +321,9 @@ public class LaTeXBuilder extends AbstractBuilder {
     StringBuilder sb = new StringBuilder();
     sb.append(laTeXTranslator.createHeading("Species Definition", 3));
     sb.append(createTableOfSpecies(compartment,
-      mapCompartmentSpecies.get(compartment.getId()), laTeXTranslator));
+      mapCompartmentSpecies.get(compartment.getId()), laTeXTranslator,
+      preprocessor, isIncluded(ReportSection.REACTIONS)
+          || isIncluded(ReportSection.REACTION_DETAILS)));
     return sb.toString();
   }
 
@@ -187,25 +335,63 @@ public class LaTeXBuilder extends AbstractBuilder {
     StringBuilder sb = new StringBuilder();
     sb.append(laTeXTranslator.createHeading("Reactions Definition", 3));
     sb.append(createTableOfReactions(compartment,
-      mapCompartmentReactions.get(compartment.getId()), laTeXTranslator));
+      mapCompartmentReactions.get(compartment.getId()), laTeXTranslator,
+      isIncluded(ReportSection.REACTION_DETAILS)));
     return sb.toString();
   }
 
 
   @Override
-  public String createSectionOfReactions(
-    Map<String, List<Reaction>> mapCompartmentReactions,
-    Compartment compartment) {
+  public String createSectionOfReactions(List<Reaction> reactions) {
     StringBuilder sb = new StringBuilder();
     sb.append(laTeXTranslator.createHeading("Reactions", 1));
-    sb.append(createSectionOfReactions(compartment,
-      mapCompartmentReactions.get(compartment.getId()), laTeXTranslator));
+    sb.append(createSectionOfReactions(reactions, laTeXTranslator,
+      isIncluded(ReportSection.KINETIC_LAWS)));
     return sb.toString();
   }
 
 
   @Override
   public String createDocumentFoot(Preprocessor preprocessor) {
+    if (laTeXTranslator.isGlossaryEnabled()
+        && laTeXTranslator.isInlineGlossary()) {
+      return createInlineGlossary(preprocessor)
+          + laTeXTranslator.terminateDocument();
+    }
     return laTeXTranslator.terminateDocument();
   }
+
+
+  /**
+   * Creates a glossary chapter of all SBO terms in the order of the
+   * preprocessor, whose entries are targets of the glossary links
+   *
+   * @param preprocessor
+   * @return String
+   */
+  private String createInlineGlossary(Preprocessor preprocessor) {
+    StringBuilder sb = new StringBuilder();
+    if (preprocessor.getSboTerms().isEmpty()) {
+      return sb.toString();
+    }
+    sb.append(laTeXTranslator.createHeading("Glossary", 1));
+    sb.append(laTeXTranslator.listingBegin());
+    sb.append(System.lineSeparator());
+    for (SBOTerm sboTerm : preprocessor.getSboTerms()) {
+      StringBuilder description = new StringBuilder();
+      description.append(sboTerm.getName());
+      description.append(". ");
+      description.append(sboTerm.getDefinition());
+      sb.append("\\item[\\hypertarget{");
+      sb.append(sboTerm.getId());
+      sb.append("}{");
+      sb.append(laTeXTranslator.mask(sboTerm.toString()));
+      sb.append("}] ");
+      sb.append(laTeXTranslator.mask(description.toString()));
+      sb.append(System.lineSeparator());
+    }
+    sb.append(laTeXTranslator.listingEnd());
+    sb.append(System.lineSeparator());
+    return sb.toString();
+  }
 }
@@ -0,0 +1,272 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import org.sbml.jsbml.ASTNode;
+
+/**
+ * This class renders abstract syntax trees of mathematical expressions as
+ * LaTeX formulas. The result is complete LaTeX markup, i.e., it must not be
+ * masked again.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class LaTeXMathRenderer extends AbstractMathRenderer {
+
+  @Override
+  protected String openFormula() {
+    return "$";
+  }
+
+
+  @Override
+  protected String closeFormula() {
+    return "$";
+  }
+
+
+  @Override
+  protected String openParenthesis() {
+    return "\\left(";
+  }
+
+
+  @Override
+  protected String closeParenthesis() {
+    return "\\right)";
+  }
+
+
+  /**
+   * @param number
+   * @return the LaTeX representation of given real number
+   */
+  private static String formatReal(double number) {
+    if (Double.isNaN(number)) {
+      return "\\mathrm{NaN}";
+    } else if (Double.isInfinite(number)) {
+      return number < 0d ? "-\\infty" : "\\infty";
+    }
+    String str = formatNumber(number);
+    int e = str.indexOf('E');
+    if (e > 0) {
+      return str.substring(0, e) + "\\cdot 10^{" + str.substring(e + 1) + "}";
+    }
+    return str;
+  }
+
+
+  @Override
+  protected String prefix(ASTNode node, int numOperands) {
+    switch (node.getType()) {
+    case NAME:
+      return "\\mathrm{" + escape(node.getName()) + "}";
+    case NAME_TIME:
+      return "t";
+    case NAME_AVOGADRO:
+      return "N_{\\mathrm{A}}";
+    case CONSTANT_E:
+      return "\\mathrm{e}";
+    case CONSTANT_PI:
+      return "\\pi";
+    case CONSTANT_TRUE:
+      return "\\mathrm{true}";
+    case CONSTANT_FALSE:
+      return "\\mathrm{false}";
+    case INTEGER:
+      return Integer.toString(node.getInteger());
+    case REAL:
+      return formatReal(node.getReal());
+    case REAL_E:
+      return formatReal(node.getMantissa()) + "\\cdot 10^{"
+          + node.getExponent() + "}";
+    case RATIONAL:
+      return "\\frac{" + node.getNumerator() + "}{" + node.getDenominator()
+          + "}";
+    case PLUS:
+    case TIMES:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_XOR:
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+    case FUNCTION_FACTORIAL:
+      return "";
+    case MINUS:
+      return numOperands == 1 ? "-" : "";
+    case LOGICAL_NOT:
+      return "\\lnot ";
+    case DIVIDE:
+      return "\\frac{";
+    case POWER:
+    case FUNCTION_POWER:
+      return "{";
+    case FUNCTION_EXP:
+      return "\\mathrm{e}^{";
+    case FUNCTION_ROOT:
+      return (numOperands == 2) ? "\\sqrt[" : "\\sqrt{";
+    case FUNCTION_ABS:
+      return "\\left|";
+    case FUNCTION_LOG:
+      if (numOperands == 2) {
+        return "\\log_{";
+      }
+      return "\\log\\left(";
+    case FUNCTION_PIECEWISE:
+      return "\\begin{cases}";
+    default:
+      return "\\mathrm{" + escape(getFunctionName(node)) + "}\\left(";
+    }
+  }
+
+
+  @Override
+  protected String separator(ASTNode node, int index) {
+    switch (node.getType()) {
+    case PLUS:
+      return " + ";
+    case MINUS:
+      return " - ";
+    case TIMES:
+      return " \\cdot ";
+    case LOGICAL_AND:
+      return " \\land ";
+    case LOGICAL_OR:
+      return " \\lor ";
+    case LOGICAL_XOR:
+      return " \\oplus ";
+    case RELATIONAL_EQ:
+      return " = ";
+    case RELATIONAL_GEQ:
+      return " \\geq ";
+    case RELATIONAL_GT:
+      return " > ";
+    case RELATIONAL_LEQ:
+      return " \\leq ";
+    case RELATIONAL_LT:
+      return " < ";
+    case RELATIONAL_NEQ:
+      return " \\neq ";
+    case DIVIDE:
+      return "}{";
+    case POWER:
+    case FUNCTION_POWER:
+      return "}^{";
+    case FUNCTION_ROOT:
+      return "]{";
+    case FUNCTION_LOG:
+      return "}\\left(";
+    case FUNCTION_PIECEWISE:
+      return (index % 2 == 1) ? " & \\text{if } " : " \\\\ ";
+    case FUNCTION_EXP:
+    case FUNCTION_ABS:
+    case FUNCTION_FACTORIAL:
+    case LOGICAL_NOT:
+      return "";
+    default:
+      return ", ";
+    }
+  }
+
+
+  @Override
+  protected String suffix(ASTNode node, int numOperands) {
+    switch (node.getType()) {
+    case DIVIDE:
+    case POWER:
+    case FUNCTION_POWER:
+    case FUNCTION_EXP:
+    case FUNCTION_ROOT:
+      return "}";
+    case FUNCTION_ABS:
+      return "\\right|";
+    case FUNCTION_FACTORIAL:
+      return "!";
+    case FUNCTION_PIECEWISE:
+      if (numOperands % 2 == 1) {
+        return " & \\text{otherwise}\\end{cases}";
+      }
+      return "\\end{cases}";
+    case PLUS:
+    case TIMES:
+    case MINUS:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_XOR:
+    case LOGICAL_NOT:
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+      return "";
+    default:
+      if (isLeaf(node)) {
+        return "";
+      }
+      return "\\right)";
+    }
+  }
+
+
+  /**
+   * Escape characters with a special meaning in LaTeX
+   *
+   * @param str
+   * @return String
+   */
+  private static String escape(String str) {
+    if (str == null) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder(str.length() + 8);
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      switch (c) {
+      case '_':
+      case '&':
+      case '%':
+      case '$':
+      case '#':
+      case '{':
+      case '}':
+        sb.append('\\');
+        sb.append(c);
+        break;
+      case '\\':
+        sb.append("\\backslash ");
+        break;
+      case '~':
+      case '^':
+        sb.append("\\char`\\");
+        sb.append(c);
+        break;
+      default:
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -18,7 +18,13 @@
  */
 package org.sbml.reporter;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+
 import org.sbml.jsbml.ASTNode;
 
 /**
@@ -32,6 +38,50 @@ import org.sbml.jsbml.ASTNode;
 public class LaTeXTranslator extends AbstractTranslator {
 
   private static final String NEW_LINE = " \\\\ ";
+  /**
+   * Maximal number of rows of one longtable in compile-fast mode; larger tables
+   * are continued in further longtables
+   */
+  private static final int MAX_ROWS_PER_TABLE = 100;
+  /**
+   * Number of characters that roughly fit into one line of text
+   */
+  private static final int LINE_WIDTH = 90;
+  /**
+   * Bounds for the number of characters that one column may claim
+   */
+  private static final int MIN_COLUMN_WIDTH = 3;
+  private static final int MAX_COLUMN_WIDTH = 40;
+
+  /**
+   * Renders kinetic laws as LaTeX formulas
+   */
+  private final LaTeXMathRenderer mathRenderer = new LaTeXMathRenderer();
+  /**
+   * Round numbers here instead of in TeX and write tables with precomputed
+   * column widths
+   */
+  private boolean compileFast = false;
+  /**
+   * Link to a glossary that is written into the document directly instead of
+   * one that is generated by the glossaries package
+   */
+  private boolean inlineGlossary = false;
+  /**
+   * Table that is currently being collected in compile-fast mode, null if no
+   * table is open
+   */
+  private List<String> tableRows;
+  /**
+   * Number of characters of the collected rows
+   */
+  private long tableRowsLength;
+  private String tableCaption;
+  private String tableHeading;
+  /**
+   * Estimated number of characters of the widest cell of each column
+   */
+  private int[] columnWidths;
 
 
   public LaTeXTranslator() {
@@ -41,6 +91,54 @@ public class LaTeXTranslator extends AbstractTranslator {
   }
 
 
+  /**
+   * In compile-fast mode, numbers are rounded and formatted while the report
+   * is written rather than by siunitx, and tables are collected entirely
+   * before they are written. This allows to give each longtable fixed column
+   * widths that follow the width of its content, so that longtable does not
+   * need further TeX runs to settle its columns, and to split large tables
+   * into several longtables of bounded size.
+   *
+   * @param compileFast
+   */
+  public void setCompileFast(boolean compileFast) {
+    this.compileFast = compileFast;
+  }
+
+
+  /**
+   * @return whether this translator is in compile-fast mode
+   */
+  public boolean isCompileFast() {
+    return compileFast;
+  }
+
+
+  /**
+   * @param inlineGlossary
+   *        if true, glossary links are plain hyperlinks to anchors within the
+   *        document and no \printglossary is emitted
+   */
+  public void setInlineGlossary(boolean inlineGlossary) {
+    this.inlineGlossary = inlineGlossary;
+  }
+
+
+  /**
+   * @return whether glossary links point to an inline glossary
+   */
+  public boolean isInlineGlossary() {
+    return inlineGlossary;
+  }
+
+
+  @Override
+  public void setMonitor(ReportMonitor monitor) {
+    super.setMonitor(monitor);
+    mathRenderer.setMonitor(monitor);
+  }
+
+
   /**
    * @param documentClass
    * @return
@@ -152,6 +250,12 @@ public class LaTeXTranslator extends AbstractTranslator {
   }
 
 
+  @Override
+  protected long getPendingOutput() {
+    return tableRowsLength;
+  }
+
+
   @Override
   public String createSimpleText(String content) {
     StringBuilder sb = new StringBuilder();
@@ -163,6 +267,14 @@ public class LaTeXTranslator extends AbstractTranslator {
 
   @Override
   public String openTable(String caption, int numColumns) {
+    if (compileFast) {
+      tableCaption = caption;
+      tableHeading = null;
+      tableRows = new ArrayList<String>();
+      tableRowsLength = 0;
+      columnWidths = new int[numColumns];
+      return "";
+    }
     StringBuilder secondArg = new StringBuilder();
     // double width = Math.floor(19/numColumns);
     for (int i = 1; i <= numColumns; i++) {
@@ -187,6 +299,13 @@ public class LaTeXTranslator extends AbstractTranslator {
     sb.append(content[content.length - 1]);
     sb.append(NEW_LINE);
     sb.append(commandNoOptions("midrule"));
+    if (tableRows != null) {
+      for (int i = 0; i < content.length; i++) {
+        updateColumnWidth(i, content[i]);
+      }
+      tableHeading = sb.toString();
+      return "";
+    }
     return sb.toString();
   }
 
@@ -202,6 +321,14 @@ public class LaTeXTranslator extends AbstractTranslator {
     sb.append(NEW_LINE);
     sb.append(System.lineSeparator());
     // sb.append(commandNoOptions("hline"));
+    if (tableRows != null) {
+      for (int i = 0; i < cells.size(); i++) {
+        updateColumnWidth(i, cells.get(i).content);
+      }
+      tableRows.add(sb.toString());
+      tableRowsLength += sb.length();
+      return "";
+    }
     return sb.toString();
   }
 
@@ -221,6 +348,13 @@ public class LaTeXTranslator extends AbstractTranslator {
 
   @Override
   public String closeTable() {
+    if (tableRows != null) {
+      String table = createCollectedTable();
+      tableRows = null;
+      tableRowsLength = 0;
+      tableHeading = null;
+      return table;
+    }
     StringBuilder sb = new StringBuilder();
     sb.append(commandNoOptions("bottomrule"));
     sb.append(command("end", "longtable"));
@@ -228,6 +362,122 @@ public class LaTeXTranslator extends AbstractTranslator {
   }
 
 
+  /**
+   * Writes the table collected in compile-fast mode as a sequence of
+   * longtables with at most {@link #MAX_ROWS_PER_TABLE} rows each
+   *
+   * @return String
+   */
+  private String createCollectedTable() {
+    String columns = createColumnSpecification(columnWidths);
+    StringBuilder sb = new StringBuilder();
+    int row = 0;
+    do {
+      checkpoint(sb);
+      sb.append(commandNoOptions("begin", "longtable", columns));
+      if (row == 0) {
+        sb.append(command("caption", mask(tableCaption)));
+      } else {
+        sb.append(command("caption*", mask(tableCaption + " (continued)")));
+      }
+      sb.append(NEW_LINE);
+      sb.append(commandNoOptions("toprule"));
+      if (tableHeading != null) {
+        sb.append(tableHeading);
+      }
+      int end = Math.min(row + MAX_ROWS_PER_TABLE, tableRows.size());
+      for (; row < end; row++) {
+        sb.append(tableRows.get(row));
+        tableRowsLength -= tableRows.get(row).length();
+      }
+      sb.append(commandNoOptions("bottomrule"));
+      sb.append(command("end", "longtable"));
+    } while (row < tableRows.size());
+    return sb.toString();
+  }
+
+
+  /**
+   * Creates fixed-width paragraph columns whose shares of the line width
+   * follow the given widths of their content. Narrow tables do not stretch
+   * over the whole line.
+   *
+   * @param widths
+   *        estimated number of characters per column
+   * @return the column specification of a longtable
+   */
+  private static String createColumnSpecification(int[] widths) {
+    int[] bounded = Arrays.copyOf(widths, Math.max(widths.length, 1));
+    int total = 0;
+    for (int i = 0; i < bounded.length; i++) {
+      bounded[i] = Math.min(Math.max(bounded[i], MIN_COLUMN_WIDTH),
+        MAX_COLUMN_WIDTH);
+      total += bounded[i];
+    }
+    total = Math.max(total, LINE_WIDTH);
+    StringBuilder sb = new StringBuilder();
+    for (int width : bounded) {
+      sb.append("p{\\dimexpr ");
+      sb.append(String.format(Locale.ENGLISH, "%.3f", (double) width / total));
+      sb.append("\\linewidth-2\\tabcolsep\\relax}");
+    }
+    return sb.toString();
+  }
+
+
+  /**
+   * Widens the given column of the currently collected table if necessary
+   *
+   * @param column
+   * @param content
+   */
+  private void updateColumnWidth(int column, String content) {
+    if (column >= columnWidths.length) {
+      columnWidths = Arrays.copyOf(columnWidths, column + 1);
+    }
+    columnWidths[column] = Math.max(columnWidths[column],
+      estimateWidth(content));
+  }
+
+
+  /**
+   * Estimates the number of characters the given content occupies in its
+   * widest line when typeset, ignoring the names of LaTeX commands, braces and
+   * dollar signs
+   *
+   * @param content
+   * @return int
+   */
+  private static int estimateWidth(String content) {
+    if (content == null) {
+      return 0;
+    }
+    int max = 0, width = 0;
+    for (int i = 0; i < content.length(); i++) {
+      char c = content.charAt(i);
+      if (c == '\n') {
+        max = Math.max(max, width);
+        width = 0;
+      } else if (c == '\\') {
+        if ((i + 1 < content.length())
+            && Character.isLetter(content.charAt(i + 1))) {
+          while ((i + 1 < content.length())
+              && Character.isLetter(content.charAt(i + 1))) {
+            i++;
+          }
+        } else {
+          // escaped character or spacing command
+          i++;
+          width++;
+        }
+      } else if ((c != '{') && (c != '}') && (c != '$')) {
+        width++;
+      }
+    }
+    return Math.max(max, width);
+  }
+
+
   @Override
   public String openList(boolean ordered) {
     // TODO Auto-generated method stub
@@ -267,7 +517,9 @@ public class LaTeXTranslator extends AbstractTranslator {
   public String terminateDocument() {
     StringBuilder sb = new StringBuilder();
     sb.append(commandNoOptions("clearpage"));
-    sb.append(commandNoOptions("printglossary"));
+    if (isGlossaryEnabled() && !inlineGlossary) {
+      sb.append(commandNoOptions("printglossary"));
+    }
     sb.append(command("end", "document"));
     return sb.toString();
   }
@@ -275,11 +527,52 @@ public class LaTeXTranslator extends AbstractTranslator {
 
   @Override
   public String round(String str, int precision) {
+    if (compileFast) {
+      return formatNumber(str, precision);
+    }
     return command("num", str, "round-mode=places",
       "round-precision=" + precision);
   }
 
 
+  /**
+   * Rounds the given number to the given number of decimal places and formats
+   * it like siunitx does by default, i.e., rounding half up, with a proper
+   * minus sign and with thin spaces between groups of three digits in integer
+   * parts of at least five digits.
+   *
+   * @param str
+   * @param precision
+   * @return String
+   */
+  private String formatNumber(String str, int precision) {
+    BigDecimal number;
+    try {
+      number = new BigDecimal(str.trim());
+    } catch (NumberFormatException exc) {
+      // NaN or infinity
+      return mask(str);
+    }
+    String digits = number.setScale(precision, RoundingMode.HALF_UP).abs()
+        .toPlainString();
+    int point = digits.indexOf('.');
+    int integerDigits = point < 0 ? digits.length() : point;
+    StringBuilder sb = new StringBuilder();
+    if (number.signum() < 0
+        && (number.setScale(precision, RoundingMode.HALF_UP).signum() != 0)) {
+      sb.append("\\ensuremath{-}");
+    }
+    for (int i = 0; i < integerDigits; i++) {
+      if ((integerDigits >= 5) && (i > 0) && ((integerDigits - i) % 3 == 0)) {
+        sb.append("\\,");
+      }
+      sb.append(digits.charAt(i));
+    }
+    sb.append(digits.substring(integerDigits));
+    return sb.toString();
+  }
+
+
   /**
    * Helper method that constructs a LaTeX command.
    *
@@ -340,7 +633,9 @@ public class LaTeXTranslator extends AbstractTranslator {
   @Override
   public String createCell(Cell cell) {
     StringBuilder sb = new StringBuilder();
-    if (cell.id != null) {
+    if (cell.isMarkup) {
+      sb.append(cell.content);
+    } else if (cell.id != null) {
       if (cell.isClickable) {
         sb.append("\\hyperlink{");
       } else {
@@ -370,10 +665,19 @@ public class LaTeXTranslator extends AbstractTranslator {
 
   @Override
   public String setGlossaryLink(String content, String id) {
+    if (inlineGlossary) {
+      return "\\hyperlink{" + id + "}{" + content + "}";
+    }
     return commandNoOptions("gls", id);
   }
 
 
+  @Override
+  public String createLink(String content, String id) {
+    return "\\hyperlink{" + id + "}{" + mask(content) + "}";
+  }
+
+
   @Override
   public String trueFalseMask(Boolean bool) {
     if (bool) {
@@ -386,9 +690,15 @@ public class LaTeXTranslator extends AbstractTranslator {
 
   @Override
   public String kineticLaw(ASTNode law) {
-    String lawTeX;
-    lawTeX = "$" + law.toLaTeX() + "$";
-    return lawTeX;
+    return mathRenderer.render(law);
+  }
+
+
+  @Override
+  public void appendKineticLaw(StringBuilder sb, ASTNode law) {
+    sb.append("\\item ");
+    mathRenderer.appendFormula(sb, law);
+    sb.append(System.lineSeparator());
   }
 
 
@@ -0,0 +1,264 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.ASTNode.Type;
+
+/**
+ * This class renders abstract syntax trees of mathematical expressions as
+ * presentation MathML, which browsers display without any client-side
+ * typesetting.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class MathMLRenderer extends AbstractMathRenderer {
+
+  @Override
+  protected String openFormula() {
+    return "<math xmlns=\"http://www.w3.org/1998/Math/MathML\">";
+  }
+
+
+  @Override
+  protected String closeFormula() {
+    return "</math>";
+  }
+
+
+  @Override
+  protected String openParenthesis() {
+    return "<mrow><mo>(</mo>";
+  }
+
+
+  @Override
+  protected String closeParenthesis() {
+    return "<mo>)</mo></mrow>";
+  }
+
+
+  @Override
+  protected List<ASTNode> getOperands(ASTNode node) {
+    List<ASTNode> operands = super.getOperands(node);
+    if ((node.getType() == Type.FUNCTION_ROOT) && (operands.size() == 2)) {
+      // MathML expects the radicand before the degree
+      List<ASTNode> swapped = new ArrayList<ASTNode>(2);
+      swapped.add(operands.get(1));
+      swapped.add(operands.get(0));
+      return swapped;
+    }
+    return operands;
+  }
+
+
+  /**
+   * @param number
+   * @return the MathML representation of given real number
+   */
+  private static String formatReal(double number) {
+    if (Double.isNaN(number)) {
+      return "<mi>NaN</mi>";
+    } else if (Double.isInfinite(number)) {
+      return number < 0d ? "<mrow><mo>&#x2212;</mo><mi>&#x221E;</mi></mrow>"
+        : "<mi>&#x221E;</mi>";
+    }
+    return "<mn>" + formatNumber(number) + "</mn>";
+  }
+
+
+  @Override
+  protected String prefix(ASTNode node, int numOperands) {
+    switch (node.getType()) {
+    case NAME:
+      return "<mi>" + escape(node.getName()) + "</mi>";
+    case NAME_TIME:
+      return "<mi>t</mi>";
+    case NAME_AVOGADRO:
+      return "<msub><mi>N</mi><mi>A</mi></msub>";
+    case CONSTANT_E:
+      return "<mi>e</mi>";
+    case CONSTANT_PI:
+      return "<mi>&#x3C0;</mi>";
+    case CONSTANT_TRUE:
+      return "<mi>true</mi>";
+    case CONSTANT_FALSE:
+      return "<mi>false</mi>";
+    case INTEGER:
+      return "<mn>" + node.getInteger() + "</mn>";
+    case REAL:
+      return formatReal(node.getReal());
+    case REAL_E:
+      return "<mrow><mn>" + formatNumber(node.getMantissa())
+          + "</mn><mo>&#x22C5;</mo><msup><mn>10</mn><mn>"
+          + node.getExponent() + "</mn></msup></mrow>";
+    case RATIONAL:
+      return "<mfrac><mn>" + node.getNumerator() + "</mn><mn>"
+          + node.getDenominator() + "</mn></mfrac>";
+    case PLUS:
+    case TIMES:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_XOR:
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+      return "<mrow>";
+    case MINUS:
+      return numOperands == 1 ? "<mrow><mo>&#x2212;</mo>" : "<mrow>";
+    case LOGICAL_NOT:
+      return "<mrow><mo>&#xAC;</mo>";
+    case DIVIDE:
+      return "<mfrac>";
+    case POWER:
+    case FUNCTION_POWER:
+      return "<msup>";
+    case FUNCTION_EXP:
+      return "<msup><mi>e</mi>";
+    case FUNCTION_ROOT:
+      return (numOperands == 2) ? "<mroot>" : "<msqrt>";
+    case FUNCTION_ABS:
+      return "<mrow><mo>|</mo>";
+    case FUNCTION_FACTORIAL:
+      return "<mrow>";
+    case FUNCTION_LOG:
+      if (numOperands == 2) {
+        return "<mrow><msub><mi>log</mi>";
+      }
+      return "<mrow><mi>log</mi><mo>&#x2061;</mo><mrow><mo>(</mo>";
+    case FUNCTION_PIECEWISE:
+      return "<mrow><mo>{</mo><mtable><mtr><mtd>";
+    default:
+      return "<mrow><mi>" + escape(getFunctionName(node))
+          + "</mi><mo>&#x2061;</mo><mrow><mo>(</mo>";
+    }
+  }
+
+
+  @Override
+  protected String separator(ASTNode node, int index) {
+    switch (node.getType()) {
+    case PLUS:
+      return "<mo>+</mo>";
+    case MINUS:
+      return "<mo>&#x2212;</mo>";
+    case TIMES:
+      return "<mo>&#x22C5;</mo>";
+    case LOGICAL_AND:
+      return "<mo>&#x2227;</mo>";
+    case LOGICAL_OR:
+      return "<mo>&#x2228;</mo>";
+    case LOGICAL_XOR:
+      return "<mo>&#x22BB;</mo>";
+    case RELATIONAL_EQ:
+      return "<mo>=</mo>";
+    case RELATIONAL_GEQ:
+      return "<mo>&#x2265;</mo>";
+    case RELATIONAL_GT:
+      return "<mo>&gt;</mo>";
+    case RELATIONAL_LEQ:
+      return "<mo>&#x2264;</mo>";
+    case RELATIONAL_LT:
+      return "<mo>&lt;</mo>";
+    case RELATIONAL_NEQ:
+      return "<mo>&#x2260;</mo>";
+    case FUNCTION_LOG:
+      return "</msub><mo>&#x2061;</mo><mrow><mo>(</mo>";
+    case FUNCTION_PIECEWISE:
+      return (index % 2 == 1) ? "</mtd><mtd><mtext>if&#xA0;</mtext>"
+        : "</mtd></mtr><mtr><mtd>";
+    case DIVIDE:
+    case POWER:
+    case FUNCTION_POWER:
+    case FUNCTION_EXP:
+    case FUNCTION_ROOT:
+    case FUNCTION_ABS:
+    case FUNCTION_FACTORIAL:
+    case LOGICAL_NOT:
+      return "";
+    default:
+      return "<mo>,</mo>";
+    }
+  }
+
+
+  @Override
+  protected String suffix(ASTNode node, int numOperands) {
+    switch (node.getType()) {
+    case PLUS:
+    case TIMES:
+    case MINUS:
+    case LOGICAL_AND:
+    case LOGICAL_OR:
+    case LOGICAL_XOR:
+    case LOGICAL_NOT:
+    case RELATIONAL_EQ:
+    case RELATIONAL_GEQ:
+    case RELATIONAL_GT:
+    case RELATIONAL_LEQ:
+    case RELATIONAL_LT:
+    case RELATIONAL_NEQ:
+      return "</mrow>";
+    case DIVIDE:
+      return "</mfrac>";
+    case POWER:
+    case FUNCTION_POWER:
+    case FUNCTION_EXP:
+      return "</msup>";
+    case FUNCTION_ROOT:
+      return (numOperands == 2) ? "</mroot>" : "</msqrt>";
+    case FUNCTION_ABS:
+      return "<mo>|</mo></mrow>";
+    case FUNCTION_FACTORIAL:
+      return "<mo>!</mo></mrow>";
+    case FUNCTION_PIECEWISE:
+      if (numOperands % 2 == 1) {
+        return "</mtd><mtd><mtext>otherwise</mtext></mtd></mtr>"
+            + "</mtable></mrow>";
+      }
+      return "</mtd></mtr></mtable></mrow>";
+    default:
+      if (isLeaf(node)) {
+        return "";
+      }
+      return "<mo>)</mo></mrow></mrow>";
+    }
+  }
+
+
+  /**
+   * Escape characters with a special meaning in XML
+   *
+   * @param str
+   * @return String
+   */
+  private static String escape(String str) {
+    if (str == null) {
+      return "";
+    }
+    return str.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+}
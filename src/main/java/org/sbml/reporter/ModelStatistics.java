@@ -0,0 +1,259 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.Species;
+
+/**
+ * This class is a counting-only variant of the {@link Preprocessor}: in a
+ * single pass over the model, it counts the species and reactions of each
+ * compartment, the reactions without kinetic law and the elements with SBO
+ * terms. Neither lists of elements nor SBO terms are looked up, so that it
+ * is suitable to summarize large numbers of huge models.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class ModelStatistics {
+
+  /**
+   * Counts of the elements in one compartment
+   */
+  public static class CompartmentCounts {
+
+    private final String id;
+    private final String name;
+    private int          speciesCount;
+    private int          reactionCount;
+
+
+    /**
+     * @param compartment
+     */
+    private CompartmentCounts(Compartment compartment) {
+      id = compartment.getId();
+      name = compartment.isSetName() ? compartment.getName() : null;
+    }
+
+
+    /**
+     * @return the ID of the compartment
+     */
+    public String getId() {
+      return id;
+    }
+
+
+    /**
+     * @return the name of the compartment or null if it has none
+     */
+    public String getName() {
+      return name;
+    }
+
+
+    /**
+     * @return the number of species in the compartment
+     */
+    public int getSpeciesCount() {
+      return speciesCount;
+    }
+
+
+    /**
+     * @return the number of reactions with reactants or products in the
+     *         compartment
+     */
+    public int getReactionCount() {
+      return reactionCount;
+    }
+
+
+    /**
+     * @return the number of species and reactions, which determines the size
+     *         of a compartment
+     */
+    public int getElementCount() {
+      return speciesCount + reactionCount;
+    }
+  }
+
+  /**
+   * Orders compartments from the largest to the smallest one
+   */
+  private static final Comparator<CompartmentCounts> BY_SIZE =
+      new Comparator<CompartmentCounts>() {
+
+        @Override
+        public int compare(CompartmentCounts c1, CompartmentCounts c2) {
+          int diff = Integer.compare(c2.getElementCount(),
+            c1.getElementCount());
+          return diff != 0 ? diff : c1.getId().compareTo(c2.getId());
+        }
+      };
+
+  private final Map<String, CompartmentCounts> counts          =
+      new LinkedHashMap<String, CompartmentCounts>();
+  private int                                  speciesCount;
+  private int                                  reactionCount;
+  private int                                  reactionsWithoutKineticLaw;
+  private int                                  sboTermCount;
+
+
+  /**
+   * @param sbmlDocument
+   */
+  public ModelStatistics(SBMLDocument sbmlDocument) {
+    Model model = sbmlDocument.getModel();
+    for (Compartment compartment : model.getListOfCompartments()) {
+      counts.put(compartment.getId(), new CompartmentCounts(compartment));
+      countSBOTerm(compartment.isSetSBOTerm());
+    }
+    for (Species species : model.getListOfSpecies()) {
+      speciesCount++;
+      CompartmentCounts compartment = counts.get(species.getCompartment());
+      if (compartment != null) {
+        compartment.speciesCount++;
+      }
+      countSBOTerm(species.isSetSBOTerm());
+    }
+    for (Reaction reaction : model.getListOfReactions()) {
+      reactionCount++;
+      if (!reaction.isSetKineticLaw()) {
+        reactionsWithoutKineticLaw++;
+      }
+      for (String compartmentId : AbstractBuilder
+          .getCompartmentsOfReaction(reaction)) {
+        CompartmentCounts compartment = counts.get(compartmentId);
+        if (compartment != null) {
+          compartment.reactionCount++;
+        }
+      }
+      countSBOTerm(reaction.isSetSBOTerm());
+    }
+  }
+
+
+  /**
+   * @param isSet
+   *        whether an element has an SBO term
+   */
+  private void countSBOTerm(boolean isSet) {
+    if (isSet) {
+      sboTermCount++;
+    }
+  }
+
+
+  /**
+   * @return the counts of all compartments in the order of the model
+   */
+  public Collection<CompartmentCounts> getCompartmentCounts() {
+    return Collections.unmodifiableCollection(counts.values());
+  }
+
+
+  /**
+   * @param n
+   * @return the n compartments with the most species and reactions, the
+   *         largest first
+   */
+  public List<CompartmentCounts> getLargestCompartments(int n) {
+    List<CompartmentCounts> compartments =
+        new ArrayList<CompartmentCounts>(counts.values());
+    Collections.sort(compartments, BY_SIZE);
+    return compartments.subList(0, Math.min(n, compartments.size()));
+  }
+
+
+  /**
+   * @return the number of compartments
+   */
+  public int getCompartmentCount() {
+    return counts.size();
+  }
+
+
+  /**
+   * @return the number of species
+   */
+  public int getSpeciesCount() {
+    return speciesCount;
+  }
+
+
+  /**
+   * @return the number of reactions
+   */
+  public int getReactionCount() {
+    return reactionCount;
+  }
+
+
+  /**
+   * @return the number of reactions without kinetic law
+   */
+  public int getReactionsWithoutKineticLaw() {
+    return reactionsWithoutKineticLaw;
+  }
+
+
+  /**
+   * @return the number of compartments, species and reactions with an SBO
+   *         term
+   */
+  public int getSBOTermCount() {
+    return sboTermCount;
+  }
+
+
+  /**
+   * @return the fraction of compartments, species and reactions with an SBO
+   *         term, 0 for empty models
+   */
+  public double getSBOCoverage() {
+    int elements = counts.size() + speciesCount + reactionCount;
+    return elements == 0 ? 0d : sboTermCount / (double) elements;
+  }
+
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return "ModelStatistics [compartments=" + counts.size() + ", species="
+        + speciesCount + ", reactions=" + reactionCount
+        + ", reactionsWithoutKineticLaw=" + reactionsWithoutKineticLaw
+        + ", sboTerms=" + sboTermCount + "]";
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Creator;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.ModifierSpeciesReference;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.Species;
+import org.sbml.jsbml.SpeciesReference;
+
+/**
+ * This class extends the methods of the AbstractBuilder class to generate a
+ * machine-readable report in newline-delimited JSON. Every line is a complete
+ * JSON object whose member "type" is one of "document", "compartment",
+ * "species", "reaction" or "sboTerm", so that the report can be processed
+ * line by line. Members that are not set in the model are null.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class NDJSONBuilder extends AbstractBuilder {
+
+  /**
+   * IDs of the reactions that have already been written, because a reaction
+   * belongs to every compartment of its reactants and products
+   */
+  private final Set<String> writtenReactions = new HashSet<String>();
+
+
+  @Override
+  public String createDocumentHead(SBMLDocument sbmlDocument,
+    Preprocessor preprocessor) {
+    writtenReactions.clear();
+    Model model = sbmlDocument.getModel();
+    StringBuilder sb = openRecord("document");
+    field(sb, "id", model.getId());
+    field(sb, "name", getName(sbmlDocument));
+    field(sb, "level", sbmlDocument.getLevel());
+    field(sb, "version", sbmlDocument.getVersion());
+    List<Map<String, Object>> creators = new ArrayList<Map<String, Object>>();
+    Object created = null;
+    if (sbmlDocument.getHistory() != null) {
+      if (sbmlDocument.getHistory().isSetListOfCreators()) {
+        for (Creator creator : getCreator(sbmlDocument)) {
+          Map<String, Object> entry = new LinkedHashMap<String, Object>();
+          entry.put("givenName", creator.getGivenName());
+          entry.put("familyName", creator.getFamilyName());
+          entry.put("email", creator.getEmail());
+          creators.add(entry);
+        }
+      }
+      if (sbmlDocument.getHistory().isSetCreatedDate()) {
+        DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX");
+        created = format.format(sbmlDocument.getHistory().getCreatedDate());
+      }
+    }
+    field(sb, "creators", creators);
+    field(sb, "created", created);
+    field(sb, "compartments", model.getCompartmentCount());
+    field(sb, "species", model.getSpeciesCount());
+    field(sb, "reactions", model.getReactionCount());
+    field(sb, "sboTerms", preprocessor.getSboTerms().size());
+    return closeRecord(sb);
+  }
+
+
+  @Override
+  public String createCompartmentOverview(SBMLDocument sbmlDocument) {
+    return "";
+  }
+
+
+  @Override
+  public String createSingleCompartmentSection(
+    Preprocessor preprocessedSBMLdata, Compartment compartment) {
+    StringBuilder sb = openRecord("compartment");
+    field(sb, "id", compartment.getId());
+    field(sb, "name", compartment.isSetName() ? compartment.getName() : null);
+    field(sb, "size", compartment.isSetSize() ? compartment.getSize() : null);
+    field(sb, "units", getUnits(compartment.getDerivedUnitDefinition()));
+    field(sb, "spatialDimensions", compartment.isSetSpatialDimensions()
+      ? compartment.getSpatialDimensions() : null);
+    field(sb, "constant", compartment.getConstant());
+    field(sb, "outside",
+      compartment.isSetOutside() ? compartment.getOutside() : null);
+    field(sb, "sboTerm",
+      compartment.isSetSBOTerm() ? compartment.getSBOTermID() : null);
+    field(sb, "numSpecies", getSpeciesOfCompartment(preprocessedSBMLdata,
+      compartment.getId()).size());
+    field(sb, "numReactions", getReactionsOfCompartment(preprocessedSBMLdata,
+      compartment.getId()).size());
+    return closeRecord(sb);
+  }
+
+
+  @Override
+  public String createSpeciesSectionOfCompartment(
+    Map<String, List<Species>> mapCompartmentSpecies, Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    for (Species s : mapCompartmentSpecies.get(compartment.getId())) {
+      checkpoint(sb);
+      StringBuilder record = openRecord("species");
+      field(record, "id", s.getId());
+      field(record, "name", s.isSetName() ? s.getName() : null);
+      field(record, "compartment", compartment.getId());
+      field(record, "initialAmount",
+        s.isSetInitialAmount() ? s.getInitialAmount() : null);
+      field(record, "initialConcentration",
+        s.isSetInitialConcentration() ? s.getInitialConcentration() : null);
+      field(record, "units", getUnits(s.getDerivedUnitDefinition()));
+      field(record, "hasOnlySubstanceUnits", s.isSetHasOnlySubstanceUnits()
+        ? s.getHasOnlySubstanceUnits() : null);
+      field(record, "boundaryCondition",
+        s.isSetBoundaryCondition() ? s.getBoundaryCondition() : null);
+      field(record, "constant", s.isSetConstant() ? s.getConstant() : null);
+      field(record, "conversionFactor",
+        s.isSetConversionFactor() ? s.getConversionFactor() : null);
+      field(record, "sboTerm", s.isSetSBOTerm() ? s.getSBOTermID() : null);
+      sb.append(closeRecord(record));
+    }
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createReactionSectionOfCompartment(
+    Map<String, List<Reaction>> mapCompartmentReactions,
+    Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    for (Reaction r : mapCompartmentReactions.get(compartment.getId())) {
+      checkpoint(sb);
+      if (!writtenReactions.add(r.getId())) {
+        continue;
+      }
+      StringBuilder record = openRecord("reaction");
+      field(record, "id", r.getId());
+      field(record, "name", r.isSetName() ? r.getName() : null);
+      field(record, "compartments", getCompartmentsOfReaction(r));
+      field(record, "reversible",
+        r.isSetReversible() ? r.getReversible() : null);
+      field(record, "reactants", getParticipants(r.getListOfReactants()));
+      field(record, "products", getParticipants(r.getListOfProducts()));
+      List<String> modifiers = new ArrayList<String>();
+      if (r.isSetListOfModifiers()) {
+        for (ModifierSpeciesReference modifier : r.getListOfModifiers()) {
+          modifiers.add(modifier.getSpecies());
+        }
+      }
+      field(record, "modifiers", modifiers);
+      field(record, "sboTerm", r.isSetSBOTerm() ? r.getSBOTermID() : null);
+      String kineticLaw = null;
+      if (isIncluded(ReportSection.KINETIC_LAWS) && r.isSetKineticLaw()
+          && r.getKineticLaw().isSetMath()) {
+        kineticLaw = getFormula(r.getKineticLaw().getMath());
+      }
+      field(record, "kineticLaw", kineticLaw);
+      sb.append(closeRecord(record));
+    }
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createSectionOfReactions(List<Reaction> reactions) {
+    // all information about reactions is part of their records
+    return "";
+  }
+
+
+  @Override
+  public String createDocumentFoot(Preprocessor preprocessor) {
+    StringBuilder sb = new StringBuilder();
+    if (!isIncluded(ReportSection.GLOSSARY)) {
+      return sb.toString();
+    }
+    for (SBOTerm sboTerm : preprocessor.getSboTerms()) {
+      StringBuilder record = openRecord("sboTerm");
+      field(record, "id", sboTerm.getId());
+      field(record, "name", sboTerm.getName());
+      field(record, "definition", sboTerm.getDefinition());
+      sb.append(closeRecord(record));
+    }
+    return sb.toString();
+  }
+
+
+  /**
+   * @param references
+   * @return one object per species reference with its species and
+   *         stoichiometry
+   */
+  private static List<Map<String, Object>> getParticipants(
+    List<SpeciesReference> references) {
+    List<Map<String, Object>> participants =
+        new ArrayList<Map<String, Object>>(references.size());
+    for (SpeciesReference reference : references) {
+      Map<String, Object> participant = new LinkedHashMap<String, Object>();
+      participant.put("species", reference.getSpecies());
+      participant.put("stoichiometry", reference.isSetStoichiometry()
+        ? reference.getStoichiometry() : null);
+      participants.add(participant);
+    }
+    return participants;
+  }
+
+
+  /**
+   * Start a new record of the given type
+   *
+   * @param type
+   * @return StringBuilder
+   */
+  private static StringBuilder openRecord(String type) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"type\":");
+    JSON.quote(sb, type);
+    return sb;
+  }
+
+
+  /**
+   * Terminate a record, which always takes exactly one line
+   *
+   * @param sb
+   * @return String
+   */
+  private static String closeRecord(StringBuilder sb) {
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+
+  /**
+   * Append a member to a record
+   *
+   * @param sb
+   * @param name
+   * @param value
+   */
+  private static void field(StringBuilder sb, String name, Object value) {
+    sb.append(',');
+    JSON.quote(sb, name);
+    sb.append(':');
+    appendValue(sb, value);
+  }
+
+
+  /**
+   * Append the JSON representation of strings, numbers, booleans, collections
+   * and maps with string keys. Numbers that are not finite become null, as
+   * JSON cannot represent them.
+   *
+   * @param sb
+   * @param value
+   */
+  private static void appendValue(StringBuilder sb, Object value) {
+    if (value == null) {
+      sb.append("null");
+    } else if (value instanceof Double) {
+      double number = ((Double) value).doubleValue();
+      if (Double.isNaN(number) || Double.isInfinite(number)) {
+        sb.append("null");
+      } else {
+        sb.append(number);
+      }
+    } else if ((value instanceof Number) || (value instanceof Boolean)) {
+      sb.append(value);
+    } else if (value instanceof Collection<?>) {
+      sb.append('[');
+      boolean first = true;
+      for (Object element : (Collection<?>) value) {
+        if (!first) {
+          sb.append(',');
+        }
+        appendValue(sb, element);
+        first = false;
+      }
+      sb.append(']');
+    } else if (value instanceof Map<?, ?>) {
+      sb.append('{');
+      boolean first = true;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!first) {
+          sb.append(',');
+        }
+        JSON.quote(sb, entry.getKey().toString());
+        sb.append(':');
+        appendValue(sb, entry.getValue());
+        first = false;
+      }
+      sb.append('}');
+    } else {
+      JSON.quote(sb, value.toString());
+    }
+  }
+}
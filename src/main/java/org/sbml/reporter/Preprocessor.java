@@ -18,22 +18,25 @@
  */
 package org.sbml.reporter;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.sbml.jsbml.AbstractNamedSBase;
 import org.sbml.jsbml.AbstractSBase;
 import org.sbml.jsbml.Compartment;
 import org.sbml.jsbml.ListOf;
 import org.sbml.jsbml.Model;
+import org.sbml.jsbml.ModifierSpeciesReference;
 import org.sbml.jsbml.Reaction;
 import org.sbml.jsbml.SBMLDocument;
-import org.sbml.jsbml.SBO;
 import org.sbml.jsbml.Species;
 import org.sbml.jsbml.SpeciesReference;
-import org.sbml.jsbml.ontology.Term;
 
 /**
  * This class processes a given SBML document to data suitable for exporting
@@ -46,18 +49,103 @@ import org.sbml.jsbml.ontology.Term;
  */
 public class Preprocessor {
 
-  private Map<String, List<Species>>  mapCompartmentSpecies   =
+  /**
+   * The role of a species in a reaction
+   */
+  public enum Role {
+    /**
+     * The species is consumed by the reaction
+     */
+    REACTANT,
+    /**
+     * The species is produced by the reaction
+     */
+    PRODUCT,
+    /**
+     * The species influences the reaction without being consumed or produced
+     */
+    MODIFIER;
+
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Enum#toString()
+     */
+    @Override
+    public String toString() {
+      return name().toLowerCase();
+    }
+  }
+
+
+  /**
+   * A reaction in which a species takes part together with its role
+   */
+  public static class Participation {
+
+    private final Reaction reaction;
+    private final Role     role;
+
+
+    /**
+     * @param reaction
+     * @param role
+     */
+    private Participation(Reaction reaction, Role role) {
+      this.reaction = reaction;
+      this.role = role;
+    }
+
+
+    /**
+     * @return the reaction
+     */
+    public Reaction getReaction() {
+      return reaction;
+    }
+
+
+    /**
+     * @return the role of the species in the reaction
+     */
+    public Role getRole() {
+      return role;
+    }
+  }
+
+  private Map<String, List<Species>>       mapCompartmentSpecies   =
       new HashMap<String, List<Species>>();
-  private Map<String, List<Reaction>> mapCompartmentReactions =
+  private Map<String, List<Reaction>>      mapCompartmentReactions =
       new HashMap<String, List<Reaction>>();
-  private Set<Term>                   sboTerms                =
-      new TreeSet<Term>();
+  /**
+   * The reactions of each species in the order of the model
+   */
+  private Map<String, List<Participation>> mapSpeciesReactions     =
+      new HashMap<String, List<Participation>>();
+  private Set<SBOTerm>                     sboTerms                =
+      new TreeSet<SBOTerm>();
+  private SearchIndex                      searchIndex;
 
 
   /**
    * @param sbmlDocument
    */
   public Preprocessor(SBMLDocument sbmlDocument) {
+    this(sbmlDocument, false);
+  }
+
+
+  /**
+   * @param sbmlDocument
+   * @param createSearchIndex
+   *        if true, an index over the IDs, names and SBO terms of all
+   *        compartments, species and reactions is built while collecting the
+   *        SBO terms
+   */
+  public Preprocessor(SBMLDocument sbmlDocument, boolean createSearchIndex) {
+    if (createSearchIndex) {
+      searchIndex = new SearchIndex();
+    }
     fillListOfSpecies(sbmlDocument);
     fillListOfReactions(sbmlDocument);
     collectSBOTerms(sbmlDocument);
@@ -89,7 +177,10 @@ public class Preprocessor {
 
   /**
    * Extract the list of reactions from given SBML document and write them into
-   * a hash map
+   * a hash map. A reaction belongs to the compartments of all its reactants
+   * and products. In the same pass over all species references, the reactions
+   * of each species are collected, so that the time is linear in the size of
+   * the model.
    *
    * @param sbmlDocument
    */
@@ -97,62 +188,99 @@ public class Preprocessor {
     Model model = sbmlDocument.getModel();
     int level = model.getListOfCompartments().getLevel();
     int version = model.getListOfCompartments().getVersion();
+    Map<String, ListOf<Reaction>> reactionsOfCompartments =
+        new HashMap<String, ListOf<Reaction>>();
     for (Compartment compartment : model.getListOfCompartments()) {
       ListOf<Reaction> reactionsOfCompartment =
           new ListOf<Reaction>(level, version);
-      for (Reaction reaction : model.getListOfReactions()) {
-        if (anySpeciesInCompartment(reaction.getListOfReactants(),
-          compartment.getId())
-            || anySpeciesInCompartment(reaction.getListOfProducts(),
-              compartment.getId())) {
+      reactionsOfCompartments.put(compartment.getId(), reactionsOfCompartment);
+      mapCompartmentReactions.put(compartment.getId(), reactionsOfCompartment);
+    }
+    Set<String> compartments = new LinkedHashSet<String>();
+    for (Reaction reaction : model.getListOfReactions()) {
+      compartments.clear();
+      addParticipants(model, reaction, reaction.getListOfReactants(),
+        Role.REACTANT, compartments);
+      addParticipants(model, reaction, reaction.getListOfProducts(),
+        Role.PRODUCT, compartments);
+      if (reaction.isSetListOfModifiers()) {
+        for (ModifierSpeciesReference modifier : reaction
+            .getListOfModifiers()) {
+          addParticipation(modifier.getSpecies(), reaction, Role.MODIFIER);
+        }
+      }
+      for (String compartmentID : compartments) {
+        ListOf<Reaction> reactionsOfCompartment =
+            reactionsOfCompartments.get(compartmentID);
+        if (reactionsOfCompartment != null) {
           reactionsOfCompartment.append(reaction);
         }
       }
-      mapCompartmentReactions.put(compartment.getId(), reactionsOfCompartment);
     }
   }
 
 
   /**
-   * This method checks if a given list of species contains a compartment
-   * reference with a specific ID
+   * Record the participation of the species of the given references in a
+   * reaction and collect their compartments
    *
+   * @param model
+   * @param reaction
    * @param speciesReferences
-   * @param compartmentID
-   * @return true if ID matches, false if not
+   * @param role
+   * @param compartments
+   *        receives the IDs of the compartments of the species
    */
-  private boolean anySpeciesInCompartment(
-    ListOf<SpeciesReference> speciesReferences, String compartmentID) {
-    if (speciesReferences == null || speciesReferences.isEmpty()) {
-      return false;
+  private void addParticipants(Model model, Reaction reaction,
+    List<SpeciesReference> speciesReferences, Role role,
+    Set<String> compartments) {
+    if (speciesReferences == null) {
+      return;
     }
-    Model model = speciesReferences.getModel();
     for (SpeciesReference speciesRef : speciesReferences) {
       String speciesID = speciesRef.getSpecies();
       Species currSpecies = model.getSpecies(speciesID);
-      if (currSpecies.getCompartment().equals(compartmentID)) {
-        return true;
+      if (currSpecies != null) {
+        compartments.add(currSpecies.getCompartment());
       }
+      addParticipation(speciesID, reaction, role);
+    }
+  }
+
+
+  /**
+   * @param speciesID
+   * @param reaction
+   * @param role
+   *        the role of the species in the reaction
+   */
+  private void addParticipation(String speciesID, Reaction reaction,
+    Role role) {
+    List<Participation> participations = mapSpeciesReactions.get(speciesID);
+    if (participations == null) {
+      participations = new ArrayList<Participation>();
+      mapSpeciesReactions.put(speciesID, participations);
     }
-    return false;
+    participations.add(new Participation(reaction, role));
   }
 
 
   /**
    * Collect all non redundant SBO terms in document (alphabetically ordered)
+   * and fill the search index if desired
    *
    * @param sbmlDocument
    */
   private void collectSBOTerms(SBMLDocument sbmlDocument) {
     Model model = sbmlDocument.getModel();
     for (Compartment compartment : model.getListOfCompartments()) {
-      addSBOTerm(compartment);
+      index(compartment, addSBOTerm(compartment));
     }
     for (Species species : model.getListOfSpecies()) {
-      addSBOTerm(species);
+      index(species, addSBOTerm(species));
     }
     for (Reaction reaction : model.getListOfReactions()) {
-      addSBOTerm(reaction);
+      index(reaction, addSBOTerm(reaction));
     }
   }
 
@@ -161,11 +289,27 @@ public class Preprocessor {
    * Extract SBO terms if found and add them to a set
    *
    * @param sBase
+   * @return the SBO term of the given element or null if it has none
    */
-  private void addSBOTerm(AbstractSBase sBase) {
+  private SBOTerm addSBOTerm(AbstractSBase sBase) {
     if (sBase.isSetSBOTerm()) {
-      Term sboTerm = SBO.getTerm(sBase.getSBOTerm());
+      SBOTerm sboTerm = SBOSnapshot.getTerm(sBase.getSBOTerm());
       sboTerms.add(sboTerm);
+      return sboTerm;
+    }
+    return null;
+  }
+
+
+  /**
+   * Add an element to the search index if this is to be created
+   *
+   * @param sBase
+   * @param sboTerm
+   */
+  private void index(AbstractNamedSBase sBase, SBOTerm sboTerm) {
+    if (searchIndex != null) {
+      searchIndex.add(sBase, sboTerm);
     }
   }
 
@@ -186,14 +330,45 @@ public class Preprocessor {
   }
 
 
+  /**
+   * @return the reactions in which each species takes part, in the order of
+   *         the model; species that take part in no reaction are missing
+   */
+  public Map<String, List<Participation>> getMapSpeciesReactions() {
+    return mapSpeciesReactions;
+  }
+
+
+  /**
+   * @param speciesID
+   * @return the reactions in which the given species takes part, in the order
+   *         of the model
+   */
+  public List<Participation> getReactionsOfSpecies(String speciesID) {
+    List<Participation> participations = mapSpeciesReactions.get(speciesID);
+    if (participations == null) {
+      return Collections.emptyList();
+    }
+    return participations;
+  }
+
+
   /**
    * @return list of SBO terms
    */
-  public Set<Term> getSboTerms() {
+  public Set<SBOTerm> getSboTerms() {
     return sboTerms;
   }
 
 
+  /**
+   * @return the search index or null if it has not been created
+   */
+  public SearchIndex getSearchIndex() {
+    return searchIndex;
+  }
+
+
   /*
    * (non-Javadoc)
    * @see java.lang.Object#toString()
@@ -0,0 +1,75 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * This exception is thrown when the creation of a report stops before it is
+ * complete, because it has been cancelled or has exceeded its limits. The
+ * files of such a report are discarded.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReportAbortedException extends CancellationException {
+
+  /**
+   * The reasons for aborting a report
+   */
+  public enum Reason {
+    /**
+     * The report has been cancelled or its thread has been interrupted
+     */
+    CANCELLED,
+    /**
+     * The deadline of the report has passed
+     */
+    DEADLINE_EXCEEDED,
+    /**
+     * The report has become larger than allowed
+     */
+    OUTPUT_LIMIT_EXCEEDED;
+  }
+
+  /**
+   * Generated serial version identifier
+   */
+  private static final long serialVersionUID = -4650182245146823377L;
+
+  private final Reason      reason;
+
+
+  /**
+   * @param reason
+   * @param message
+   */
+  public ReportAbortedException(Reason reason, String message) {
+    super(message);
+    this.reason = reason;
+  }
+
+
+  /**
+   * @return why the report has been aborted
+   */
+  public Reason getReason() {
+    return reason;
+  }
+}
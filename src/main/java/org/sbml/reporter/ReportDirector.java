@@ -18,11 +18,23 @@
  */
 package org.sbml.reporter;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import org.sbml.jsbml.Compartment;
 import org.sbml.jsbml.SBMLDocument;
@@ -43,6 +55,34 @@ public class ReportDirector implements Callable<Path> {
   private AbstractBuilder abstractBuilder;
   private SBMLDocument    sbml;
   private Path            file;
+  /**
+   * Compression of all files of the report
+   */
+  private Compression     compression      = Compression.NONE;
+  /**
+   * Write a gzip-compressed copy next to each file of the report
+   */
+  private boolean         compressedCopies = false;
+  /**
+   * Destination of all files of the report
+   */
+  private ReportSink      sink             = new FileChannelSink();
+  /**
+   * Size of the byte buffer of each file
+   */
+  private int             bufferSize       = ChannelWriter.DEFAULT_BUFFER_SIZE;
+  /**
+   * Pass each section to the sink as soon as it is complete
+   */
+  private boolean         flushSections    = false;
+  /**
+   * Channels opened for the report that is currently being created
+   */
+  private List<WritableByteChannel> openChannels;
+  /**
+   * Cancellation, deadline and output limit of the report
+   */
+  private final ReportMonitor       monitor          = new ReportMonitor();
 
 
   /**
@@ -61,10 +101,229 @@ public class ReportDirector implements Callable<Path> {
 
 
   /**
-   * This function writes the specific report to new file
+   * @param compression
+   *        the compression of all files of the report. Compressed files get the
+   *        extension of the compression appended to their names.
+   */
+  public void setCompression(Compression compression) {
+    this.compression = compression;
+  }
+
+
+  /**
+   * @param compressedCopies
+   *        if true and the report is not compressed itself, a gzip-compressed
+   *        copy (with the extension .gz) is written next to each file of the
+   *        report, as served by web servers that support precompressed files
+   */
+  public void setCompressedCopies(boolean compressedCopies) {
+    this.compressedCopies = compressedCopies;
+  }
+
+
+  /**
+   * @param sink
+   *        the destination of all files of the report, by default files that
+   *        are written under a temporary name and renamed when complete
+   */
+  public void setSink(ReportSink sink) {
+    this.sink = sink;
+  }
+
+
+  /**
+   * @param bufferSize
+   *        the number of bytes that are collected for each file before they
+   *        are passed to the sink
+   */
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+
+  /**
+   * @param flushSections
+   *        if true, the content of all open files is passed to the sink after
+   *        each compartment instead of whenever a buffer is full, so that
+   *        consumers of a stream receive the report progressively
+   */
+  public void setFlushSections(boolean flushSections) {
+    this.flushSections = flushSections;
+  }
+
+
+  /**
+   * Stops the creation of the report at the next checkpoint, i.e., between
+   * compartments or rows of tables, and discards its files. This can be
+   * called from any thread.
+   */
+  public void cancel() {
+    monitor.cancel();
+  }
+
+
+  /**
+   * @return whether the report has been cancelled
+   */
+  public boolean isCancelled() {
+    return monitor.isCancelled();
+  }
+
+
+  /**
+   * @param timeout
+   *        the time after which the creation of the report is aborted and its
+   *        files are discarded, 0 if unlimited
+   * @param unit
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    monitor.setTimeout(timeout, unit);
+  }
+
+
+  /**
+   * @param maxOutputSize
+   *        the number of characters of all files of the report from which on
+   *        its creation is aborted and its files are discarded, 0 if unlimited
+   */
+  public void setMaxOutputSize(long maxOutputSize) {
+    monitor.setMaxOutputSize(maxOutputSize);
+  }
+
+
+  /**
+   * @return the path of the report file that is actually written, including
+   *         the extension of the compression
+   */
+  public Path getOutputFile() {
+    return withExtension(file, compression);
+  }
+
+
+  /**
+   * @param path
+   * @param compression
+   * @return the given path with the extension of the given compression
+   */
+  private static Path withExtension(Path path, Compression compression) {
+    if (compression == Compression.NONE) {
+      return path;
+    }
+    return path.resolveSibling(path.getFileName() + compression.getExtension());
+  }
+
+
+  /**
+   * Opens a file of the report, whose content is encoded as UTF-8 and, if
+   * desired, compressed on a separate thread
+   *
+   * @param path
+   *        the path of the uncompressed file
+   * @return Writer
+   * @throws IOException
+   */
+  private Writer openWriter(Path path) throws IOException {
+    if (compression != Compression.NONE) {
+      return new ChannelWriter(Channels.newChannel(new BackgroundCompressor(
+        compression.wrap(Channels.newOutputStream(
+          openChannel(withExtension(path, compression)))))), bufferSize);
+    } else if (compressedCopies) {
+      return new ChannelWriter(Channels.newChannel(new BackgroundCompressor(
+        Channels.newOutputStream(openChannel(path)),
+        Compression.GZIP.wrap(Channels.newOutputStream(
+          openChannel(withExtension(path, Compression.GZIP)))))),
+        bufferSize);
+    }
+    return new ChannelWriter(openChannel(path), bufferSize);
+  }
+
+
+  /**
+   * Opens a file in the sink and remembers its channel, so that it can be
+   * discarded if the report cannot be completed
+   *
+   * @param path
+   * @return WritableByteChannel
+   * @throws IOException
+   */
+  private WritableByteChannel openChannel(Path path) throws IOException {
+    WritableByteChannel channel = sink.open(path);
+    openChannels.add(channel);
+    return channel;
+  }
+
+
+  /**
+   * Passes the content of the report file and all open separate files to the
+   * sink if sections are to be flushed
+   *
+   * @param report
+   * @param openFiles
+   * @throws IOException
+   */
+  private void flush(Writer report, Map<String, SeparateFile> openFiles)
+      throws IOException {
+    if (flushSections) {
+      for (SeparateFile separateFile : openFiles.values()) {
+        separateFile.writer.flush();
+      }
+      report.flush();
+    }
+  }
+
+
+  /**
+   * Writes content into a file of the report unless the report has been
+   * aborted or would exceed its maximal size
+   *
+   * @param writer
+   * @param content
+   * @throws IOException
+   * @throws ReportAbortedException
+   */
+  private void write(Writer writer, String content) throws IOException {
+    monitor.addOutput(content.length());
+    writer.write(content);
+  }
+
+
+  /**
+   * Closes all given resources even if some of them fail
+   *
+   * @param resources
+   * @throws IOException
+   *         the first exception that occurred
+   */
+  private static void closeAll(Collection<? extends Closeable> resources)
+      throws IOException {
+    IOException failure = null;
+    for (Closeable resource : resources) {
+      try {
+        resource.close();
+      } catch (IOException exc) {
+        if (failure == null) {
+          failure = exc;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+
+  /**
+   * This function writes the specific report to new file. Sections that the
+   * builder directs into separate files are written next to the report file.
+   * The files are committed to the sink only after all of them have been
+   * written and closed successfully. If the report cannot be completed, the
+   * sink discards all of its files instead.
    *
    * @param sbmlDocument
    * @throws IOException
+   * @throws ReportAbortedException
+   *         if the report has been cancelled or exceeds its deadline or
+   *         maximal size
    */
   public void createReport(SBMLDocument sbmlDocument) throws IOException {
     
@@ -72,31 +331,199 @@ public class ReportDirector implements Callable<Path> {
       throw new IllegalArgumentException("The SBML document must not be null.");
     }
     
-    Preprocessor preprocessedSBMLdata = new Preprocessor(sbmlDocument);
-    BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()));
-    bw.write(
-      abstractBuilder.createDocumentHead(sbmlDocument, preprocessedSBMLdata));
-    bw.write(abstractBuilder.createCompartmentOverview(sbmlDocument));
-    for (Compartment compartment : sbmlDocument.getModel()
-        .getListOfCompartments()) {
-      bw.write(abstractBuilder.createSingleCompartmentSection(
-        preprocessedSBMLdata, compartment));
-      bw.write(abstractBuilder.createSpeciesSectionOfCompartment(
-        preprocessedSBMLdata.getMapCompartmentSpecies(), compartment));
-      bw.write(abstractBuilder.createReactionSectionOfCompartment(
-        preprocessedSBMLdata.getMapCompartmentReactions(), compartment));
-      bw.write(abstractBuilder.createSectionOfReactions(
-        preprocessedSBMLdata.getMapCompartmentReactions(), compartment));
+    monitor.start();
+    abstractBuilder.setMonitor(monitor);
+    Preprocessor preprocessedSBMLdata = new Preprocessor(sbmlDocument,
+      abstractBuilder.requiresSearchIndex());
+    monitor.checkpoint();
+    abstractBuilder.setReportFileName(file.getFileName().toString());
+    Map<String, SeparateFile> openFiles =
+        new LinkedHashMap<String, SeparateFile>();
+    openChannels = new ArrayList<WritableByteChannel>();
+    List<Writer> writers = new ArrayList<Writer>();
+    boolean complete = false;
+    try {
+      Writer bw = openWriter(file);
+      writers.add(bw);
+      write(bw,
+        abstractBuilder.createDocumentHead(sbmlDocument, preprocessedSBMLdata));
+      for (Map.Entry<String, String> entry : abstractBuilder
+          .createSupplementaryFiles(preprocessedSBMLdata).entrySet()) {
+        Writer writer = openWriter(file.resolveSibling(entry.getKey()));
+        writers.add(writer);
+        write(writer, entry.getValue());
+      }
+      if (abstractBuilder.isIncluded(ReportSection.OVERVIEW)) {
+        write(bw, abstractBuilder.createCompartmentOverview(sbmlDocument));
+      }
+      flush(bw, openFiles);
+      for (Compartment compartment : abstractBuilder
+          .getSelectedCompartments(sbmlDocument)) {
+        monitor.checkpoint();
+        Set<String> usedFiles = new HashSet<String>();
+        if (abstractBuilder.isIncluded(ReportSection.COMPARTMENT)) {
+          write(getWriter(bw, openFiles, usedFiles, ReportSection.COMPARTMENT,
+            compartment), abstractBuilder.createSingleCompartmentSection(
+              preprocessedSBMLdata, compartment));
+        }
+        if (abstractBuilder.isIncluded(ReportSection.SPECIES)) {
+          write(getWriter(bw, openFiles, usedFiles, ReportSection.SPECIES,
+            compartment), abstractBuilder.createSpeciesSectionOfCompartment(
+              preprocessedSBMLdata.getMapCompartmentSpecies(), compartment));
+        }
+        if (abstractBuilder.isIncluded(ReportSection.REACTIONS)) {
+          write(getWriter(bw, openFiles, usedFiles, ReportSection.REACTIONS,
+            compartment), abstractBuilder.createReactionSectionOfCompartment(
+              preprocessedSBMLdata.getMapCompartmentReactions(), compartment));
+        }
+        closeFiles(bw, openFiles, usedFiles);
+        flush(bw, openFiles);
+      }
+      closeFiles(bw, openFiles, Collections.<String> emptySet());
+      if (abstractBuilder.isIncluded(ReportSection.REACTION_DETAILS)) {
+        // reactions spanning several compartments are described only once
+        monitor.checkpoint();
+        write(getWriter(bw, openFiles, new HashSet<String>(),
+          ReportSection.REACTION_DETAILS, null),
+          abstractBuilder.createSectionOfReactions(abstractBuilder
+              .getSelectedReactions(sbmlDocument, preprocessedSBMLdata)));
+        closeFiles(bw, openFiles, Collections.<String> emptySet());
+      }
+      write(bw, abstractBuilder.createDocumentFoot(preprocessedSBMLdata));
+      // a file is only complete if its remaining content could be written
+      closeAll(writers);
+      closeAll(openChannels);
+      for (WritableByteChannel channel : openChannels) {
+        sink.commit(channel);
+      }
+      complete = true;
+    } finally {
+      if (!complete) {
+        for (WritableByteChannel channel : openChannels) {
+          try {
+            sink.discard(channel);
+          } catch (IOException exc) {
+            // the reason why the report is incomplete takes precedence
+          }
+        }
+        for (SeparateFile separateFile : openFiles.values()) {
+          writers.add(separateFile.writer);
+        }
+        try {
+          closeAll(writers);
+          // channels of writers that could not be created
+          closeAll(openChannels);
+        } catch (IOException exc) {
+          // the reason why the report is incomplete takes precedence
+        }
+      }
+      openChannels = null;
+      abstractBuilder.setMonitor(null);
+    }
+  }
+
+
+  /**
+   * Obtain the writer for the given section of a compartment. If the builder
+   * directs the section into a separate file, this file is opened on first
+   * use.
+   *
+   * @param report
+   *        the writer of the report file
+   * @param openFiles
+   *        separate files that are currently open
+   * @param usedFiles
+   *        collects the names of the separate files used for the current
+   *        compartment
+   * @param section
+   * @param compartment
+   * @return the writer to be used
+   * @throws IOException
+   */
+  private Writer getWriter(Writer report,
+    Map<String, SeparateFile> openFiles, Set<String> usedFiles,
+    ReportSection section, Compartment compartment) throws IOException {
+    String fileName = abstractBuilder.getFileName(section, compartment);
+    if (fileName == null) {
+      return report;
+    }
+    usedFiles.add(fileName);
+    SeparateFile separateFile = openFiles.get(fileName);
+    if (separateFile == null) {
+      separateFile = new SeparateFile(section, compartment,
+        openWriter(file.resolveSibling(fileName)));
+      openFiles.put(fileName, separateFile);
+      write(separateFile.writer,
+        abstractBuilder.createFileHead(section, compartment, fileName));
+    }
+    return separateFile.writer;
+  }
+
+
+  /**
+   * Terminate and close all open separate files that are not in use anymore
+   * and reference them from the report. The reference is only written once a
+   * file is complete, so that it follows the content of all compartments that
+   * contributed to this file.
+   *
+   * @param report
+   *        the writer of the report file
+   * @param openFiles
+   * @param usedFiles
+   *        the files to be kept open
+   * @throws IOException
+   */
+  private void closeFiles(Writer report,
+    Map<String, SeparateFile> openFiles, Set<String> usedFiles)
+        throws IOException {
+    Iterator<Map.Entry<String, SeparateFile>> iterator =
+        openFiles.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, SeparateFile> entry = iterator.next();
+      if (!usedFiles.contains(entry.getKey())) {
+        SeparateFile separateFile = entry.getValue();
+        iterator.remove();
+        try {
+          write(separateFile.writer,
+            abstractBuilder.createFileFoot(entry.getKey()));
+        } finally {
+          separateFile.writer.close();
+        }
+        write(report, abstractBuilder.createFileReference(separateFile.section,
+          separateFile.compartment, entry.getKey()));
+      }
+    }
+  }
+
+
+  /**
+   * A separate file that is currently being written together with the section
+   * and compartment for which it has been opened
+   */
+  private static class SeparateFile {
+
+    private final ReportSection section;
+    private final Compartment   compartment;
+    private final Writer        writer;
+
+
+    /**
+     * @param section
+     * @param compartment
+     * @param writer
+     */
+    SeparateFile(ReportSection section, Compartment compartment,
+      Writer writer) {
+      this.section = section;
+      this.compartment = compartment;
+      this.writer = writer;
     }
-    bw.write(abstractBuilder.createDocumentFoot(preprocessedSBMLdata));
-    bw.flush();
-    bw.close();
   }
 
 
   @Override
   public Path call() throws Exception {
     createReport(sbml);
-    return file;
+    return getOutputFile();
   }
 }
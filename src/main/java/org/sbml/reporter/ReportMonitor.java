@@ -0,0 +1,155 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class controls the creation of a report: it can be cancelled from any
+ * thread and limits the time and output size of the report. Builders and
+ * translators call {@link #checkpoint(long)} between compartments and rows
+ * of tables, so that an aborted report stops within a short time and before
+ * it has grown much beyond its maximal size.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReportMonitor {
+
+  private volatile boolean cancelled     = false;
+  /**
+   * Time available for a report in nanoseconds, 0 if unlimited
+   */
+  private long             timeout       = 0;
+  /**
+   * Maximal number of characters of a report, 0 if unlimited
+   */
+  private long             maxOutputSize = 0;
+  private long             deadline;
+  private long             outputSize;
+
+
+  /**
+   * Request that the report stops at the next checkpoint
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+
+  /**
+   * @return whether the report has been cancelled
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+
+  /**
+   * @param timeout
+   *        the time available for a report, 0 if unlimited
+   * @param unit
+   */
+  public void setTimeout(long timeout, TimeUnit unit) {
+    this.timeout = unit.toNanos(timeout);
+  }
+
+
+  /**
+   * @param maxOutputSize
+   *        the maximal number of characters of a report including all of its
+   *        files, 0 if unlimited
+   */
+  public void setMaxOutputSize(long maxOutputSize) {
+    this.maxOutputSize = maxOutputSize;
+  }
+
+
+  /**
+   * Start the deadline and the count of the output of a new report
+   */
+  public void start() {
+    deadline = System.nanoTime() + timeout;
+    outputSize = 0;
+  }
+
+
+  /**
+   * @throws ReportAbortedException
+   *         if the report has been cancelled, its thread has been interrupted
+   *         or its deadline has passed
+   */
+  public void checkpoint() {
+    if (cancelled || Thread.currentThread().isInterrupted()) {
+      throw new ReportAbortedException(ReportAbortedException.Reason.CANCELLED,
+        "The report has been cancelled");
+    }
+    if ((timeout > 0) && (System.nanoTime() - deadline > 0)) {
+      throw new ReportAbortedException(
+        ReportAbortedException.Reason.DEADLINE_EXCEEDED,
+        "The report has not been completed within "
+            + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms");
+    }
+  }
+
+
+  /**
+   * @param pendingOutput
+   *        the number of characters that have been created for the report,
+   *        but not yet been accounted for by {@link #addOutput(long)}, e.g.,
+   *        the part of a section that has been built so far
+   * @throws ReportAbortedException
+   *         if the report has been aborted or would exceed its maximal size
+   *         together with the given output
+   */
+  public void checkpoint(long pendingOutput) {
+    checkpoint();
+    checkOutputSize(outputSize + pendingOutput);
+  }
+
+
+  /**
+   * Account for output of the report
+   *
+   * @param length
+   *        the number of characters to be written
+   * @throws ReportAbortedException
+   *         if the report would exceed its maximal size or if it has been
+   *         aborted otherwise
+   */
+  public void addOutput(long length) {
+    checkpoint();
+    outputSize += length;
+    checkOutputSize(outputSize);
+  }
+
+
+  /**
+   * @param size
+   * @throws ReportAbortedException
+   *         if the given size exceeds the maximal size of the report
+   */
+  private void checkOutputSize(long size) {
+    if ((maxOutputSize > 0) && (size > maxOutputSize)) {
+      throw new ReportAbortedException(
+        ReportAbortedException.Reason.OUTPUT_LIMIT_EXCEEDED,
+        "The report exceeds " + maxOutputSize + " characters");
+    }
+  }
+}
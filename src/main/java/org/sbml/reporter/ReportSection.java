@@ -0,0 +1,64 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+/**
+ * This enumeration lists the parts of a report that can be selected in a
+ * {@link ReportSpecification}. The sections {@link #COMPARTMENT},
+ * {@link #SPECIES} and {@link #REACTIONS} are created for each compartment,
+ * while {@link #REACTION_DETAILS} follows once for all compartments. A builder
+ * may direct these sections into separate files.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public enum ReportSection {
+
+  /**
+   * Table of all compartments at the beginning of a report
+   */
+  OVERVIEW,
+  /**
+   * General information about a compartment including the lists of its species
+   * and reactions
+   */
+  COMPARTMENT,
+  /**
+   * Table of the species in a compartment
+   */
+  SPECIES,
+  /**
+   * Table of the reactions in a compartment
+   */
+  REACTIONS,
+  /**
+   * Detailed description of each reaction, even if it belongs to several
+   * compartments only once
+   */
+  REACTION_DETAILS,
+  /**
+   * Kinetic laws within the detailed descriptions of reactions
+   */
+  KINETIC_LAWS,
+  /**
+   * Definitions of all SBO terms at the end of a report, which are linked
+   * from the SBO terms of compartments, species and reactions
+   */
+  GLOSSARY;
+}
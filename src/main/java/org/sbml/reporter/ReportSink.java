@@ -0,0 +1,69 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * The destination of the files of a report. The {@link ReportDirector} encodes
+ * and optionally compresses the content of each file and writes the resulting
+ * bytes into the channel that the sink opens for the file.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public interface ReportSink {
+
+  /**
+   * Opens a file of a report for writing. Once the returned channel has been
+   * closed, the file is either committed or discarded.
+   *
+   * @param path
+   * @return WritableByteChannel
+   * @throws IOException
+   */
+  public WritableByteChannel open(Path path) throws IOException;
+
+
+  /**
+   * Completes a file whose channel has been closed after all files of the
+   * report have been written successfully. Sinks that write files under a
+   * temporary name move them to their final names now.
+   *
+   * @param channel
+   *        a channel that has been opened by this sink
+   * @throws IOException
+   */
+  public void commit(WritableByteChannel channel) throws IOException;
+
+
+  /**
+   * Marks a file that could not be completed, e.g., because of an error while
+   * creating the report or because the report has been aborted. Once its
+   * channel is closed, the file must not remain in place of a previous
+   * version. Files that have already been committed are left in place.
+   *
+   * @param channel
+   *        a channel that has been opened by this sink
+   * @throws IOException
+   */
+  public void discard(WritableByteChannel channel) throws IOException;
+}
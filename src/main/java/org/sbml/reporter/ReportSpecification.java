@@ -0,0 +1,713 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.sbml.jsbml.Compartment;
+
+/**
+ * This class specifies up front what a report contains: its formats, the
+ * compartments to be reported and the types of sections. Builders and the
+ * {@link ReportDirector} skip everything that is not requested instead of
+ * creating and discarding it. By default, a specification selects all
+ * compartments and sections. The command line of {@link SBMLreporter} is
+ * parsed into a specification by {@link #parse(String...)}.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReportSpecification {
+
+  /**
+   * Formats that are written if none are specified
+   */
+  public static final List<String> DEFAULT_FORMATS    =
+      Collections.unmodifiableList(Arrays.asList("html", "tex"));
+
+  private List<String>             formats            =
+      new ArrayList<String>(DEFAULT_FORMATS);
+  /**
+   * Patterns of compartment IDs or names to be included, all compartments are
+   * included if empty
+   */
+  private final List<Pattern>      includePatterns    =
+      new ArrayList<Pattern>();
+  /**
+   * Patterns of compartment IDs or names to be excluded
+   */
+  private final List<Pattern>      excludePatterns    =
+      new ArrayList<Pattern>();
+  private EnumSet<ReportSection>   sections           =
+      EnumSet.allOf(ReportSection.class);
+  /**
+   * Number of largest compartments listed in summaries
+   */
+  private int                      topN               =
+      SummaryBuilder.DEFAULT_TOP_N;
+  /**
+   * IDs of the compartments to which the report is restricted, null if it is
+   * not restricted
+   */
+  private Set<String>              compartmentIds;
+  /**
+   * Number of threads for batches of several input files
+   */
+  private int                      threads            =
+      Runtime.getRuntime().availableProcessors();
+  /**
+   * Number of species and reactions from which on models of a batch are
+   * reported per compartment, 0 if they are never split
+   */
+  private int                      splitThreshold     =
+      BatchScheduler.DEFAULT_SPLIT_THRESHOLD;
+  /**
+   * Time available for each report in seconds, 0 if unlimited
+   */
+  private long                     timeout            = 0;
+  /**
+   * Maximal number of characters of each report, 0 if unlimited
+   */
+  private long                     maxOutputSize      = 0;
+  /**
+   * Heap available to the jobs of a batch in MiB, 0 for a share of the
+   * maximal heap
+   */
+  private int                      memoryBudget       = 0;
+  /**
+   * Whether reports are passed on section by section with small buffers in
+   * order to use as little memory as possible
+   */
+  private boolean                  lowMemory          = false;
+  /**
+   * File recording the completed inputs of batches, null for
+   * {@link BatchJournal#DEFAULT_FILE_NAME} in the output directory
+   */
+  private String                   journal;
+  private List<String>             inputs             =
+      new ArrayList<String>();
+  private String                   output;
+  /**
+   * Whether the formats have been given explicitly
+   */
+  private boolean                  formatsSpecified   = false;
+
+
+  /**
+   * Creates a specification of all compartments and sections in the default
+   * formats
+   */
+  public ReportSpecification() {
+  }
+
+
+  /**
+   * Creates a copy of the given specification
+   *
+   * @param specification
+   */
+  public ReportSpecification(ReportSpecification specification) {
+    formats = new ArrayList<String>(specification.formats);
+    includePatterns.addAll(specification.includePatterns);
+    excludePatterns.addAll(specification.excludePatterns);
+    sections = EnumSet.copyOf(specification.sections);
+    topN = specification.topN;
+    compartmentIds = specification.compartmentIds;
+    threads = specification.threads;
+    splitThreshold = specification.splitThreshold;
+    timeout = specification.timeout;
+    maxOutputSize = specification.maxOutputSize;
+    memoryBudget = specification.memoryBudget;
+    lowMemory = specification.lowMemory;
+    journal = specification.journal;
+    inputs = new ArrayList<String>(specification.inputs);
+    output = specification.output;
+    formatsSpecified = specification.formatsSpecified;
+  }
+
+
+  /**
+   * @return the names of the formats to be written, e.g., html or tex
+   */
+  public List<String> getFormats() {
+    return formats;
+  }
+
+
+  /**
+   * @param formats
+   *        the names of the formats to be written
+   */
+  public void setFormats(List<String> formats) {
+    this.formats = new ArrayList<String>(formats);
+    formatsSpecified = true;
+  }
+
+
+  /**
+   * @return whether the formats have been set explicitly
+   */
+  public boolean isFormatsSpecified() {
+    return formatsSpecified;
+  }
+
+
+  /**
+   * @param pattern
+   *        a pattern for the IDs or names of compartments to be included,
+   *        where '*' stands for any sequence of characters and '?' for any
+   *        single character
+   */
+  public void addInclude(String pattern) {
+    includePatterns.add(compileWildcards(pattern));
+  }
+
+
+  /**
+   * @param pattern
+   *        a pattern for the IDs or names of compartments to be excluded,
+   *        which takes precedence over included patterns
+   * @see #addInclude(String)
+   */
+  public void addExclude(String pattern) {
+    excludePatterns.add(compileWildcards(pattern));
+  }
+
+
+  /**
+   * @param sections
+   *        the types of sections to be created
+   */
+  public void setSections(Set<ReportSection> sections) {
+    this.sections = sections.isEmpty() ? EnumSet.noneOf(ReportSection.class)
+      : EnumSet.copyOf(sections);
+  }
+
+
+  /**
+   * @return the types of sections to be created
+   */
+  public Set<ReportSection> getSections() {
+    return Collections.unmodifiableSet(sections);
+  }
+
+
+  /**
+   * @param section
+   * @return whether the given type of section is to be created
+   */
+  public boolean isIncluded(ReportSection section) {
+    return sections.contains(section);
+  }
+
+
+  /**
+   * @param compartmentId
+   * @return a copy of this specification that is restricted to the
+   *         compartment with the given ID, provided it is selected by this
+   *         specification
+   */
+  public ReportSpecification restrictTo(String compartmentId) {
+    ReportSpecification specification = new ReportSpecification(this);
+    specification.compartmentIds = Collections.singleton(compartmentId);
+    return specification;
+  }
+
+
+  /**
+   * @param compartment
+   * @return whether the given compartment is to be reported, i.e., its ID or
+   *         name matches an included pattern (if any) and neither matches an
+   *         excluded pattern, and the report is not restricted to other
+   *         compartments
+   */
+  public boolean isIncluded(Compartment compartment) {
+    if ((compartmentIds != null)
+        && !compartmentIds.contains(compartment.getId())) {
+      return false;
+    }
+    if (!includePatterns.isEmpty()
+        && !matches(includePatterns, compartment)) {
+      return false;
+    }
+    return !matches(excludePatterns, compartment);
+  }
+
+
+  /**
+   * @param patterns
+   * @param compartment
+   * @return whether the ID or the name of the compartment matches any of the
+   *         patterns
+   */
+  private static boolean matches(List<Pattern> patterns,
+    Compartment compartment) {
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(compartment.getId()).matches()
+          || (compartment.isSetName()
+              && pattern.matcher(compartment.getName()).matches())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * @param wildcards
+   * @return a regular expression that is equivalent to the given pattern with
+   *         the wildcards '*' and '?'
+   */
+  private static Pattern compileWildcards(String wildcards) {
+    StringBuilder regex = new StringBuilder();
+    int start = 0;
+    for (int i = 0; i < wildcards.length(); i++) {
+      char c = wildcards.charAt(i);
+      if ((c == '*') || (c == '?')) {
+        if (i > start) {
+          regex.append(Pattern.quote(wildcards.substring(start, i)));
+        }
+        regex.append(c == '*' ? ".*" : ".");
+        start = i + 1;
+      }
+    }
+    if (start < wildcards.length()) {
+      regex.append(Pattern.quote(wildcards.substring(start)));
+    }
+    return Pattern.compile(regex.toString());
+  }
+
+
+  /**
+   * @param topN
+   *        the number of largest compartments listed in summaries
+   */
+  public void setTopN(int topN) {
+    if (topN < 0) {
+      throw new IllegalArgumentException("Negative number of compartments "
+          + topN);
+    }
+    this.topN = topN;
+  }
+
+
+  /**
+   * @return the number of largest compartments listed in summaries
+   */
+  public int getTopN() {
+    return topN;
+  }
+
+
+  /**
+   * @param threads
+   *        the number of threads for batches of several input files
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid number of threads "
+          + threads);
+    }
+    this.threads = threads;
+  }
+
+
+  /**
+   * @return the number of threads for batches of several input files
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+
+  /**
+   * @param splitThreshold
+   *        the number of species and reactions from which on models of a batch
+   *        are reported per compartment, 0 if they are never split
+   */
+  public void setSplitThreshold(int splitThreshold) {
+    if (splitThreshold < 0) {
+      throw new IllegalArgumentException("Negative number of elements "
+          + splitThreshold);
+    }
+    this.splitThreshold = splitThreshold;
+  }
+
+
+  /**
+   * @return the number of species and reactions from which on models of a
+   *         batch are reported per compartment, 0 if they are never split
+   */
+  public int getSplitThreshold() {
+    return splitThreshold;
+  }
+
+
+  /**
+   * @param timeout
+   *        the time available for each report in seconds, 0 if unlimited
+   */
+  public void setTimeout(long timeout) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Negative timeout " + timeout);
+    }
+    this.timeout = timeout;
+  }
+
+
+  /**
+   * @return the time available for each report in seconds, 0 if unlimited
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+
+  /**
+   * @param maxOutputSize
+   *        the maximal number of characters of each report, 0 if unlimited
+   */
+  public void setMaxOutputSize(long maxOutputSize) {
+    if (maxOutputSize < 0) {
+      throw new IllegalArgumentException("Negative output size "
+          + maxOutputSize);
+    }
+    this.maxOutputSize = maxOutputSize;
+  }
+
+
+  /**
+   * @return the maximal number of characters of each report, 0 if unlimited
+   */
+  public long getMaxOutputSize() {
+    return maxOutputSize;
+  }
+
+
+  /**
+   * @param memoryBudget
+   *        the heap available to the jobs of a batch in MiB, 0 for a share of
+   *        the maximal heap
+   */
+  public void setMemoryBudget(int memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Negative memory budget "
+          + memoryBudget);
+    }
+    this.memoryBudget = memoryBudget;
+  }
+
+
+  /**
+   * @return the heap available to the jobs of a batch in MiB, 0 for a share
+   *         of the maximal heap
+   */
+  public int getMemoryBudget() {
+    return memoryBudget;
+  }
+
+
+  /**
+   * @param lowMemory
+   *        whether reports are passed on section by section with small
+   *        buffers in order to use as little memory as possible
+   */
+  public void setLowMemory(boolean lowMemory) {
+    this.lowMemory = lowMemory;
+  }
+
+
+  /**
+   * @return whether reports are passed on section by section with small
+   *         buffers in order to use as little memory as possible
+   */
+  public boolean isLowMemory() {
+    return lowMemory;
+  }
+
+
+  /**
+   * @param journal
+   *        the file recording the completed inputs of batches, null for
+   *        {@link BatchJournal#DEFAULT_FILE_NAME} in the output directory
+   */
+  public void setJournal(String journal) {
+    this.journal = journal;
+  }
+
+
+  /**
+   * @return the file recording the completed inputs of batches, null for
+   *         {@link BatchJournal#DEFAULT_FILE_NAME} in the output directory
+   */
+  public String getJournal() {
+    return journal;
+  }
+
+
+  /**
+   * @return a description of what is reported and where, which differs
+   *         between specifications that lead to different reports of the
+   *         same model
+   */
+  public String getContentKey() {
+    return formats + ";" + sections + ";" + includePatterns + ";"
+        + excludePatterns + ";" + compartmentIds + ";" + topN + ";" + output;
+  }
+
+
+  /**
+   * @return the first input file, "-" for the standard input
+   */
+  public String getInput() {
+    return inputs.get(0);
+  }
+
+
+  /**
+   * @return all input files
+   */
+  public List<String> getInputs() {
+    return Collections.unmodifiableList(inputs);
+  }
+
+
+  /**
+   * @return the output directory, "-" for the standard output
+   */
+  public String getOutput() {
+    return output;
+  }
+
+
+  /**
+   * Parses a command line of the form
+   * {@code [options] <input>... <output>}; see {@link #getUsage()}.
+   *
+   * @param args
+   * @return ReportSpecification
+   * @throws IllegalArgumentException
+   *         if the command line is invalid
+   */
+  public static ReportSpecification parse(String... args) {
+    ReportSpecification specification = new ReportSpecification();
+    List<String> positional = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("-") || !arg.startsWith("-")) {
+        positional.add(arg);
+        continue;
+      }
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value of " + arg);
+      }
+      String value = args[++i];
+      switch (arg) {
+      case "-f":
+      case "--formats":
+        specification.setFormats(split(value));
+        break;
+      case "-i":
+      case "--include":
+        for (String pattern : split(value)) {
+          specification.addInclude(pattern);
+        }
+        break;
+      case "-x":
+      case "--exclude":
+        for (String pattern : split(value)) {
+          specification.addExclude(pattern);
+        }
+        break;
+      case "-s":
+      case "--sections":
+        specification.setSections(parseSections(value));
+        break;
+      case "-n":
+      case "--top":
+        specification.setTopN(parseNumber(value));
+        break;
+      case "-j":
+      case "--threads":
+        specification.setThreads(parseNumber(value));
+        break;
+      case "--split":
+        specification.setSplitThreshold(parseNumber(value));
+        break;
+      case "--timeout":
+        specification.setTimeout(parseNumber(value));
+        break;
+      case "--max-output":
+        specification.setMaxOutputSize(parseLong(value));
+        break;
+      case "--memory":
+        specification.setMemoryBudget(parseNumber(value));
+        break;
+      case "--journal":
+        specification.setJournal(value);
+        break;
+      case "--skip":
+        specification.sections.removeAll(parseSections(value));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown option " + arg);
+      }
+    }
+    if (positional.size() < 2) {
+      throw new IllegalArgumentException(
+        "Expected input files and an output directory");
+    }
+    specification.inputs =
+        new ArrayList<String>(positional.subList(0, positional.size() - 1));
+    specification.output = positional.get(positional.size() - 1);
+    return specification;
+  }
+
+
+  /**
+   * @param value
+   * @return the number
+   * @throws IllegalArgumentException
+   *         if the value is not a number
+   */
+  private static int parseNumber(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException exc) {
+      throw new IllegalArgumentException("Not a number: " + value);
+    }
+  }
+
+
+  /**
+   * @param value
+   * @return the number, which may exceed the range of int
+   * @throws IllegalArgumentException
+   *         if the value is not a number
+   */
+  private static long parseLong(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException exc) {
+      throw new IllegalArgumentException("Not a number: " + value);
+    }
+  }
+
+
+  /**
+   * @param value
+   *        comma separated list
+   * @return its non-empty elements
+   */
+  private static List<String> split(String value) {
+    List<String> elements = new ArrayList<String>();
+    for (String element : value.split(",")) {
+      if (!element.trim().isEmpty()) {
+        elements.add(element.trim());
+      }
+    }
+    return elements;
+  }
+
+
+  /**
+   * @param value
+   *        comma separated names of sections, e.g., species,kinetic-laws
+   * @return Set
+   */
+  private static Set<ReportSection> parseSections(String value) {
+    Set<ReportSection> sections = EnumSet.noneOf(ReportSection.class);
+    for (String name : split(value)) {
+      try {
+        sections.add(ReportSection.valueOf(
+          name.toUpperCase().replace('-', '_')));
+      } catch (IllegalArgumentException exc) {
+        throw new IllegalArgumentException("Unknown section " + name);
+      }
+    }
+    return sections;
+  }
+
+
+  /**
+   * @return a description of the command line
+   */
+  public static String getUsage() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Usage: SBMLreporter [options] <input>... <output>\n");
+    sb.append("  <input>   SBML file, gzip file, zip or COMBINE archive, ");
+    sb.append("or - for standard input;\n");
+    sb.append("            several files are reported as a batch in ");
+    sb.append("parallel\n");
+    sb.append("  <output>  directory of the reports, or - for standard ");
+    sb.append("output\n");
+    sb.append("            (of a single format and a single SBML ");
+    sb.append("document)\n");
+    sb.append("Options (lists are separated by commas):\n");
+    sb.append("  -f, --formats <list>   html, tex, ndjson, tsv, csv, ");
+    sb.append("graphml, dot,\n");
+    sb.append("                         summary (alias summary-html), ");
+    sb.append("summary-json\n");
+    sb.append("                         (default: html,tex or html for ");
+    sb.append("standard output)\n");
+    sb.append("  -i, --include <list>   compartments whose ID or name ");
+    sb.append("matches a pattern\n");
+    sb.append("                         (wildcards * and ?)\n");
+    sb.append("  -x, --exclude <list>   compartments to be left out\n");
+    sb.append("  -s, --sections <list>  only these sections: overview, ");
+    sb.append("compartment, species,\n");
+    sb.append("                         reactions, reaction-details, ");
+    sb.append("kinetic-laws, glossary\n");
+    sb.append("      --skip <list>      all sections except these\n");
+    sb.append("  -n, --top <number>     largest compartments listed in ");
+    sb.append("summaries (default: " + SummaryBuilder.DEFAULT_TOP_N + ")\n");
+    sb.append("  -j, --threads <number> threads for batches (default: ");
+    sb.append("number of processors)\n");
+    sb.append("      --split <number>   report models of a batch with at ");
+    sb.append("least this many\n");
+    sb.append("                         species and reactions per ");
+    sb.append("compartment (default: "
+        + BatchScheduler.DEFAULT_SPLIT_THRESHOLD + ", 0: never)\n");
+    sb.append("                         into <name>.<compartment>.* ");
+    sb.append("listed in <name>.index.tsv\n");
+    sb.append("      --timeout <number> seconds after which a report is ");
+    sb.append("aborted (default: 0,\n");
+    sb.append("                         unlimited)\n");
+    sb.append("      --max-output <number>  characters from which on a ");
+    sb.append("report is aborted\n");
+    sb.append("                         (default: 0, unlimited)\n");
+    sb.append("      --memory <number>  MiB of heap for the models of a ");
+    sb.append("batch (default: 0,\n");
+    sb.append("                         three quarters of the maximal ");
+    sb.append("heap)\n");
+    sb.append("      --journal <file>   record of the completed inputs of a ");
+    sb.append("batch, which are\n");
+    sb.append("                         skipped when it is run again ");
+    sb.append("(default: "
+        + BatchJournal.DEFAULT_FILE_NAME + "\n");
+    sb.append("                         in the output directory)\n");
+    return sb.toString();
+  }
+}
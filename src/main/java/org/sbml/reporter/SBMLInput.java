@@ -0,0 +1,293 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.SBMLReader;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * This class reads SBML documents from plain or gzip-compressed files, from
+ * zip archives and from COMBINE archives (OMEX) without extracting anything
+ * to the disk. The kind of a file is recognized by its first bytes, not by
+ * its name.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class SBMLInput {
+
+  /**
+   * Receives the SBML documents of an input file one after the other
+   */
+  public interface DocumentHandler {
+
+    /**
+     * @param name
+     *        the name of the file or archive entry without its extension
+     * @param sbmlDocument
+     * @throws Exception
+     */
+    public void handle(String name, SBMLDocument sbmlDocument)
+        throws Exception;
+  }
+
+  /**
+   * The manifest of a COMBINE archive
+   */
+  private static final String MANIFEST    = "manifest.xml";
+  /**
+   * Prefix of the formats of SBML files in the manifest of a COMBINE archive
+   */
+  private static final String SBML_FORMAT =
+      "identifiers.org/combine.specifications/sbml";
+  private static final int    GZIP_MAGIC  = 0x1f8b;
+  private static final int    ZIP_MAGIC   = 0x504b;
+
+
+  /**
+   * This class only provides static methods
+   */
+  private SBMLInput() {
+  }
+
+
+  /**
+   * @param path
+   * @return true if the given file is a zip or COMBINE archive
+   * @throws IOException
+   */
+  public static boolean isArchive(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return readMagic(in) == ZIP_MAGIC;
+    }
+  }
+
+
+  /**
+   * Reads all SBML documents of the given file. A plain or gzip-compressed
+   * file contains exactly one document. Of a COMBINE archive, all entries
+   * whose format is SBML according to its manifest are read; of other zip
+   * archives all entries ending with .xml or .sbml (optionally followed by
+   * .gz). Documents are read one at a time so that only one of them needs to
+   * be kept in memory.
+   *
+   * @param path
+   * @param handler
+   * @return the number of documents read
+   * @throws Exception
+   *         if a document cannot be read or the handler fails
+   */
+  public static int read(Path path, DocumentHandler handler) throws Exception {
+    if (!isArchive(path)) {
+      try (InputStream in = Files.newInputStream(path)) {
+        handler.handle(getBaseName(path.getFileName().toString()),
+          read(in));
+      }
+      return 1;
+    }
+    try (ZipFile zipFile = new ZipFile(path.toFile())) {
+      List<ZipEntry> entries = getSBMLEntries(zipFile);
+      Set<String> names = new HashSet<String>();
+      for (ZipEntry entry : entries) {
+        String name = getBaseName(entry.getName());
+        for (int i = 2; !names.add(name); i++) {
+          // e.g., a.xml and a.sbml in the same directory
+          name = getBaseName(entry.getName()) + '_' + i;
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          handler.handle(name, read(in));
+        }
+      }
+      return entries.size();
+    }
+  }
+
+
+  /**
+   * @param path
+   * @return the number of SBML documents that {@link #read(Path,
+   *         DocumentHandler)} reads from the given file, without reading them
+   * @throws Exception
+   *         if the file or the manifest of an archive cannot be read
+   */
+  public static int countDocuments(Path path) throws Exception {
+    if (!isArchive(path)) {
+      return 1;
+    }
+    try (ZipFile zipFile = new ZipFile(path.toFile())) {
+      return getSBMLEntries(zipFile).size();
+    }
+  }
+
+
+  /**
+   * Reads one SBML document from a plain or gzip-compressed stream
+   *
+   * @param in
+   * @return SBMLDocument
+   * @throws Exception
+   */
+  public static SBMLDocument read(InputStream in) throws Exception {
+    return SBMLReader.read(decompress(in));
+  }
+
+
+  /**
+   * @param in
+   *        a plain or gzip-compressed stream
+   * @return a buffered stream of the uncompressed content
+   * @throws IOException
+   */
+  public static InputStream decompress(InputStream in) throws IOException {
+    InputStream buffered = new BufferedInputStream(in);
+    buffered.mark(2);
+    int magic = readMagic(buffered);
+    buffered.reset();
+    if (magic == GZIP_MAGIC) {
+      buffered = new BufferedInputStream(new GZIPInputStream(buffered));
+    }
+    return buffered;
+  }
+
+
+  /**
+   * @param in
+   * @return the first two bytes of the given stream as big-endian number or
+   *         -1 if the stream is shorter
+   * @throws IOException
+   */
+  private static int readMagic(InputStream in) throws IOException {
+    int first = in.read();
+    int second = in.read();
+    if ((first < 0) || (second < 0)) {
+      return -1;
+    }
+    return (first << 8) | second;
+  }
+
+
+  /**
+   * @param zipFile
+   * @return the entries of the given archive that contain SBML documents in
+   *         the order of the manifest or of the archive
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  private static List<ZipEntry> getSBMLEntries(ZipFile zipFile)
+      throws IOException, ParserConfigurationException, SAXException {
+    List<ZipEntry> entries = new ArrayList<ZipEntry>();
+    ZipEntry manifest = zipFile.getEntry(MANIFEST);
+    if (manifest != null) {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      // the manifest comes from an untrusted archive
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature(
+        "http://apache.org/xml/features/disallow-doctype-decl", true);
+      factory.setFeature(
+        "http://xml.org/sax/features/external-general-entities", false);
+      factory.setFeature(
+        "http://xml.org/sax/features/external-parameter-entities", false);
+      factory.setXIncludeAware(false);
+      factory.setExpandEntityReferences(false);
+      NodeList contents;
+      try (InputStream in = zipFile.getInputStream(manifest)) {
+        contents = factory.newDocumentBuilder().parse(in)
+            .getElementsByTagNameNS("*", "content");
+      }
+      for (int i = 0; i < contents.getLength(); i++) {
+        Element content = (Element) contents.item(i);
+        if (content.getAttribute("format").contains(SBML_FORMAT)) {
+          String location = content.getAttribute("location");
+          if (location.startsWith("./")) {
+            location = location.substring(2);
+          } else if (location.startsWith("/")) {
+            location = location.substring(1);
+          }
+          ZipEntry entry = zipFile.getEntry(location);
+          if ((entry == null) || entry.isDirectory()) {
+            throw new IOException("Missing SBML file " + location + " in "
+                + zipFile.getName());
+          }
+          entries.add(entry);
+        }
+      }
+      return entries;
+    }
+    Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+    while (enumeration.hasMoreElements()) {
+      ZipEntry entry = enumeration.nextElement();
+      String name = entry.getName().toLowerCase();
+      if (name.endsWith(".gz")) {
+        name = name.substring(0, name.length() - 3);
+      }
+      if (!entry.isDirectory()
+          && (name.endsWith(".xml") || name.endsWith(".sbml"))) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+
+  /**
+   * @param name
+   *        the name of a file, possibly with directories
+   * @return the name of the file without extensions like .xml, .sbml or .gz,
+   *         in which directories are separated by underscores, so that equal
+   *         file names in different directories of an archive do not collide
+   */
+  private static String getBaseName(String name) {
+    String baseName = name.startsWith("./") ? name.substring(2) : name;
+    baseName = baseName.replace('\\', '/');
+    while (baseName.startsWith("/")) {
+      baseName = baseName.substring(1);
+    }
+    baseName = baseName.replace('/', '_');
+    for (String extension : new String[] {".gz", ".xml", ".sbml"}) {
+      if (baseName.toLowerCase().endsWith(extension)) {
+        baseName = baseName.substring(0,
+          baseName.length() - extension.length());
+      }
+    }
+    return baseName;
+  }
+}
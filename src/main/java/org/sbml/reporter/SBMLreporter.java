@@ -19,9 +19,18 @@
 package org.sbml.reporter;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.sbml.jsbml.Compartment;
 import org.sbml.jsbml.SBMLDocument;
-import org.sbml.jsbml.SBMLReader;
 
 /**
  * Test Class to try if creation of reports work.
@@ -29,26 +38,353 @@ import org.sbml.jsbml.SBMLReader;
  */
 public class SBMLreporter {
 
+  /**
+   * Stands for the standard input or output in the arguments
+   */
+  private static final String STANDARD_STREAM        = "-";
+  /**
+   * Number of bytes collected for each file of a report in low-memory mode
+   */
+  private static final int    LOW_MEMORY_BUFFER_SIZE = 1 << 12;
+
+
   /**
    * @param args
-   *        the input file and a target directory for two reports (LaTeX
-   *        and HTML)
+   *        options followed by the input file and a target directory for the
+   *        reports, see {@link ReportSpecification#getUsage()}. Several input
+   *        files are reported in parallel by a {@link BatchScheduler}. By
+   *        default, two reports (HTML and LaTeX) of all compartments and
+   *        sections are created. The input file can be a
+   *        plain or gzip-compressed SBML file, a zip archive or a COMBINE
+   *        archive; in case of archives, the reports of each SBML file are
+   *        named after it. If the input file is "-", the SBML document is read
+   *        from the standard input. If the target directory is "-", a single
+   *        report is written to the standard output (html by default, or tex,
+   *        ndjson, graphml, dot or a summary; tsv and csv consist of several
+   *        files and cannot be streamed), and archives must contain exactly
+   *        one SBML document.
    * @throws Exception
    *         if something goes wrong.
    */
   public static void main(String[] args) throws Exception {
-    File inputFile = new File(args[0]);
-    File outputDir = new File(args[1]);
-    SBMLDocument sbml = SBMLReader.read(inputFile);
+    final ReportSpecification specification;
+    try {
+      specification = ReportSpecification.parse(args);
+      boolean batch = specification.getInputs().size() > 1;
+      if (batch && (STANDARD_STREAM.equals(specification.getOutput())
+          || specification.getInputs().contains(STANDARD_STREAM))) {
+        throw new IllegalArgumentException(
+          "Several input files cannot be combined with standard streams");
+      }
+      if (STANDARD_STREAM.equals(specification.getOutput())) {
+        if (!specification.isFormatsSpecified()) {
+          specification.setFormats(Collections.singletonList("html"));
+        } else if (specification.getFormats().size() != 1) {
+          throw new IllegalArgumentException(
+            "Exactly one format can be written to the standard output");
+        }
+        if (!STANDARD_STREAM.equals(specification.getInput())
+            && (SBMLInput.countDocuments(
+              Paths.get(specification.getInput())) > 1)) {
+          // the reports would be concatenated into one invalid document
+          throw new IllegalArgumentException("Archives with several SBML "
+              + "documents cannot be written to the standard output");
+        }
+      }
+      for (String format : specification.getFormats()) {
+        if (createSummaryBuilder(format, specification) == null) {
+          createBuilder(format);
+        }
+      }
+    } catch (IllegalArgumentException exc) {
+      System.err.println(exc.getMessage());
+      System.err.print(ReportSpecification.getUsage());
+      System.exit(1);
+      return;
+    }
+    if (specification.getInputs().size() > 1) {
+      createBatch(specification);
+      return;
+    }
+    SBMLInput.DocumentHandler handler;
+    final boolean archive;
+    if (STANDARD_STREAM.equals(specification.getOutput())) {
+      final StreamSink sink = new StreamSink(System.out);
+      archive = false;
+      handler = new SBMLInput.DocumentHandler() {
 
-    // Let's build an HTML report first
-    AbstractBuilder abstractBuilder = new HTMLBuilder();
-    ReportDirector reportDirector = new ReportDirector(abstractBuilder, sbml, new File(outputDir.getAbsolutePath() + "/output.html").toPath());
-    reportDirector.call();
+        @Override
+        public void handle(String name, SBMLDocument sbml) throws Exception {
+          createReport(sbml, specification, sink);
+        }
+      };
+    } else {
+      final File outputDir = new File(specification.getOutput());
+      archive = !STANDARD_STREAM.equals(specification.getInput())
+          && SBMLInput.isArchive(Paths.get(specification.getInput()));
+      handler = new SBMLInput.DocumentHandler() {
+
+        @Override
+        public void handle(String name, SBMLDocument sbml) throws Exception {
+          createReports(sbml, specification, outputDir,
+            archive ? name : "output");
+        }
+      };
+    }
+    if (STANDARD_STREAM.equals(specification.getInput())) {
+      handler.handle("output", SBMLInput.read(System.in));
+    } else {
+      SBMLInput.read(Paths.get(specification.getInput()), handler);
+    }
+  }
+
+
+  /**
+   * Reports several input files in parallel, each named after its file.
+   * Inputs that the journal of the batch records as complete are skipped.
+   *
+   * @param specification
+   * @throws Exception
+   */
+  private static void createBatch(ReportSpecification specification)
+      throws Exception {
+    final File outputDir = new File(specification.getOutput());
+    List<Path> inputs = new ArrayList<Path>();
+    for (String input : specification.getInputs()) {
+      inputs.add(Paths.get(input));
+    }
+    BatchScheduler batchScheduler = new BatchScheduler(specification,
+      new BatchScheduler.ReportWriter() {
 
-    // Now, we proceed by creating a LaTeX report
-    abstractBuilder = new LaTeXBuilder();
-    reportDirector = new ReportDirector(abstractBuilder, sbml, new File(outputDir.getAbsolutePath() + "/output.tex").toPath());
+        @Override
+        public List<Path> write(SBMLDocument sbml,
+          ReportSpecification specification, String baseName)
+              throws Exception {
+          return createReports(sbml, specification, outputDir, baseName);
+        }
+
+
+        @Override
+        public Path writeIndex(List<Compartment> compartments,
+          String baseName) throws Exception {
+          return createIndex(compartments, specification, outputDir,
+            baseName);
+        }
+      });
+    Path journal = new File(outputDir, BatchJournal.DEFAULT_FILE_NAME).toPath();
+    if (specification.getJournal() != null) {
+      journal = Paths.get(specification.getJournal());
+    }
+    try (BatchJournal batchJournal = new BatchJournal(journal)) {
+      batchScheduler.setJournal(batchJournal);
+      batchScheduler.run(inputs);
+    }
+  }
+
+
+  /**
+   * Writes a report in the given format into the given sink, which receives
+   * each section as soon as it is complete
+   *
+   * @param sbml
+   * @param specification
+   *        specifies a single format
+   * @param sink
+   * @throws Exception
+   */
+  private static void createReport(SBMLDocument sbml,
+    ReportSpecification specification, ReportSink sink) throws Exception {
+    String format = specification.getFormats().get(0);
+    SummaryBuilder summaryBuilder = createSummaryBuilder(format, specification);
+    if (summaryBuilder != null) {
+      summaryBuilder.write(sbml, Paths.get("report." + getExtension(format)),
+        sink);
+      return;
+    }
+    AbstractBuilder abstractBuilder = createBuilder(format);
+    abstractBuilder.setSpecification(specification);
+    ReportDirector reportDirector = new ReportDirector(abstractBuilder, sbml,
+      Paths.get("report." + getExtension(format)));
+    reportDirector.setSink(sink);
+    reportDirector.setFlushSections(true);
+    reportDirector.setTimeout(specification.getTimeout(), TimeUnit.SECONDS);
+    reportDirector.setMaxOutputSize(specification.getMaxOutputSize());
     reportDirector.call();
   }
+
+
+  /**
+   * @param format
+   * @return a builder for reports in the given format
+   */
+  private static AbstractBuilder createBuilder(String format) {
+    switch (format.toLowerCase()) {
+    case "html":
+      return new HTMLBuilder();
+    case "tex":
+    case "latex":
+      return new LaTeXBuilder();
+    case "json":
+    case "ndjson":
+      return new NDJSONBuilder();
+    case "tsv":
+    case "csv":
+      TabularBuilder tabularBuilder = new TabularBuilder();
+      tabularBuilder.setFormat(TabularBuilder.Format.valueOf(
+        format.toUpperCase()));
+      return tabularBuilder;
+    case "graphml":
+    case "dot":
+      GraphBuilder graphBuilder = new GraphBuilder();
+      graphBuilder.setFormat(GraphBuilder.Format.valueOf(
+        format.toUpperCase()));
+      return graphBuilder;
+    default:
+      throw new IllegalArgumentException("Unknown report format " + format);
+    }
+  }
+
+
+  /**
+   * @param format
+   * @param specification
+   * @return a builder for summaries if the given format is summary,
+   *         summary-html or summary-json, null otherwise
+   */
+  private static SummaryBuilder createSummaryBuilder(String format,
+    ReportSpecification specification) {
+    SummaryBuilder summaryBuilder = new SummaryBuilder();
+    switch (format.toLowerCase()) {
+    case "summary":
+    case "summary-html":
+      summaryBuilder.setFormat(SummaryBuilder.Format.HTML);
+      break;
+    case "summary-json":
+      summaryBuilder.setFormat(SummaryBuilder.Format.JSON);
+      break;
+    default:
+      return null;
+    }
+    summaryBuilder.setTopN(specification.getTopN());
+    return summaryBuilder;
+  }
+
+
+  /**
+   * @param format
+   * @return the file extension of reports in the given format
+   */
+  private static String getExtension(String format) {
+    switch (format.toLowerCase()) {
+    case "summary":
+    case "summary-html":
+      return "summary.html";
+    case "summary-json":
+      return "summary.json";
+    case "latex":
+      return "tex";
+    case "json":
+      return "ndjson";
+    default:
+      return format.toLowerCase();
+    }
+  }
+
+
+  /**
+   * @param sbml
+   * @param specification
+   * @param outputDir
+   * @param baseName
+   *        the name of the reports without extension
+   * @return the report files written
+   * @throws Exception
+   */
+  private static List<Path> createReports(SBMLDocument sbml,
+    ReportSpecification specification, File outputDir, String baseName)
+        throws Exception {
+    List<Path> files = new ArrayList<Path>();
+    String prefix = outputDir.getAbsolutePath() + "/" + baseName;
+    for (String format : specification.getFormats()) {
+      Path file = new File(prefix + "." + getExtension(format)).toPath();
+      SummaryBuilder summaryBuilder =
+          createSummaryBuilder(format, specification);
+      if (summaryBuilder != null) {
+        summaryBuilder.write(sbml, file, new FileChannelSink());
+        files.add(file);
+        continue;
+      }
+      AbstractBuilder abstractBuilder = createBuilder(format);
+      abstractBuilder.setSpecification(specification);
+      ReportDirector reportDirector =
+          new ReportDirector(abstractBuilder, sbml, file);
+      if (specification.isLowMemory()) {
+        reportDirector.setFlushSections(true);
+        reportDirector.setBufferSize(LOW_MEMORY_BUFFER_SIZE);
+      }
+      reportDirector.setTimeout(specification.getTimeout(), TimeUnit.SECONDS);
+      reportDirector.setMaxOutputSize(specification.getMaxOutputSize());
+      files.add(reportDirector.call());
+    }
+    return files;
+  }
+
+
+  /**
+   * Writes a tab-separated index of the reports of a document that is
+   * reported per compartment, with one line per compartment and format
+   *
+   * @param compartments
+   * @param specification
+   * @param outputDir
+   * @param baseName
+   *        the name of the document without extension
+   * @return the index file
+   * @throws IOException
+   */
+  private static Path createIndex(List<Compartment> compartments,
+    ReportSpecification specification, File outputDir, String baseName)
+        throws IOException {
+    StringBuilder sb = new StringBuilder();
+    sb.append("compartment\tname\treport\n");
+    for (Compartment compartment : compartments) {
+      for (String format : specification.getFormats()) {
+        sb.append(toField(compartment.getId()));
+        sb.append('\t');
+        sb.append(
+          toField(compartment.isSetName() ? compartment.getName() : ""));
+        sb.append('\t');
+        sb.append(toField(BatchScheduler.getPartName(baseName,
+          compartment.getId()) + "." + getExtension(format)));
+        sb.append('\n');
+      }
+    }
+    Path file = new File(
+      outputDir.getAbsolutePath() + "/" + baseName + ".index.tsv").toPath();
+    ReportSink sink = new FileChannelSink();
+    WritableByteChannel channel = sink.open(file);
+    Writer writer = new ChannelWriter(channel);
+    boolean complete = false;
+    try {
+      writer.write(sb.toString());
+      writer.close();
+      sink.commit(channel);
+      complete = true;
+    } finally {
+      if (!complete) {
+        sink.discard(channel);
+        writer.close();
+      }
+    }
+    return file;
+  }
+
+
+  /**
+   * @param value
+   * @return the given value with tabs and line breaks replaced by spaces
+   */
+  private static String toField(String value) {
+    return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+  }
 }
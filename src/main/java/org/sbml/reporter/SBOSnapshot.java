@@ -0,0 +1,316 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sbml.jsbml.SBO;
+import org.sbml.jsbml.ontology.Term;
+
+/**
+ * This class resolves SBO terms from a compact binary snapshot of the
+ * ontology, which is created at build time by {@link #main(String[])}, so
+ * that reports do not need to load and parse the complete SBO ontology on
+ * startup. The snapshot is memory-mapped when it is accessed for the first
+ * time. Terms that are not contained in the snapshot are resolved by JSBML.
+ * <p>
+ * The snapshot consists of a header (magic number and number of terms), an
+ * index of term numbers and record offsets sorted by number, and the
+ * records. Each record contains the label, name and definition of a term as
+ * length-prefixed UTF-8 strings followed by the numbers of its parents.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public final class SBOSnapshot {
+
+  /**
+   * Name of the snapshot resource
+   */
+  public static final String                      RESOURCE = "/SBO.snapshot";
+
+  private static final int                        MAGIC    = 0x53424f31;
+  private static final int                        HEADER   = 8;
+  private static final int                        ENTRY    = 8;
+
+  /**
+   * Terms that have already been resolved
+   */
+  private static final ConcurrentMap<Integer, SBOTerm> terms =
+      new ConcurrentHashMap<Integer, SBOTerm>();
+
+
+  /**
+   * Loads the snapshot when it is first needed
+   */
+  private static final class Holder {
+
+    private static final ByteBuffer SNAPSHOT = load();
+  }
+
+
+  /**
+   * This class only provides static methods
+   */
+  private SBOSnapshot() {
+  }
+
+
+  /**
+   * @param sboTerm
+   *        the number of an SBO term
+   * @return the term, which is taken from the snapshot if it contains it and
+   *         from JSBML otherwise
+   */
+  public static SBOTerm getTerm(int sboTerm) {
+    SBOTerm term = terms.get(sboTerm);
+    if (term == null) {
+      term = lookUp(Holder.SNAPSHOT, sboTerm);
+      if (term == null) {
+        term = SBOTerm.valueOf(SBO.getTerm(sboTerm));
+      }
+      SBOTerm previous = terms.putIfAbsent(sboTerm, term);
+      if (previous != null) {
+        term = previous;
+      }
+    }
+    return term;
+  }
+
+
+  /**
+   * @return the snapshot or null if it is not available, in which case all
+   *         terms are resolved by JSBML
+   */
+  private static ByteBuffer load() {
+    URL url = SBOSnapshot.class.getResource(RESOURCE);
+    if (url == null) {
+      return null;
+    }
+    try {
+      ByteBuffer snapshot;
+      if ("file".equals(url.getProtocol())) {
+        try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()),
+          StandardOpenOption.READ)) {
+          snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+            channel.size());
+        }
+      } else {
+        // resources within archives cannot be mapped
+        try (InputStream stream = url.openStream()) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          byte[] buffer = new byte[8192];
+          int length;
+          while ((length = stream.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, length);
+          }
+          snapshot = ByteBuffer.wrap(bytes.toByteArray());
+        }
+      }
+      if ((snapshot.limit() < HEADER) || (snapshot.getInt(0) != MAGIC)) {
+        return null;
+      }
+      return snapshot;
+    } catch (IOException | URISyntaxException exc) {
+      return null;
+    }
+  }
+
+
+  /**
+   * Binary search for a term within the index of the snapshot
+   *
+   * @param snapshot
+   *        can be {@code null}
+   * @param sboTerm
+   * @return the term or null if the snapshot does not contain it
+   */
+  static SBOTerm lookUp(ByteBuffer snapshot, int sboTerm) {
+    if (snapshot == null) {
+      return null;
+    }
+    int low = 0;
+    int high = snapshot.getInt(4) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int number = snapshot.getInt(HEADER + middle * ENTRY);
+      if (number < sboTerm) {
+        low = middle + 1;
+      } else if (number > sboTerm) {
+        high = middle - 1;
+      } else {
+        return readRecord(snapshot, sboTerm,
+          snapshot.getInt(HEADER + middle * ENTRY + 4));
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * @param snapshot
+   * @param sboTerm
+   * @param offset
+   *        the position of the record
+   * @return SBOTerm
+   */
+  private static SBOTerm readRecord(ByteBuffer snapshot, int sboTerm,
+    int offset) {
+    // a private view, so that concurrent look-ups do not interfere
+    ByteBuffer record = snapshot.duplicate();
+    record.position(offset);
+    String label = readString(record);
+    String name = readString(record);
+    String definition = readString(record);
+    int parentCount = record.getInt();
+    List<String> parents = new ArrayList<String>(parentCount);
+    for (int i = 0; i < parentCount; i++) {
+      parents.add(toId(record.getInt()));
+    }
+    return new SBOTerm(toId(sboTerm), name, label, definition, parents);
+  }
+
+
+  /**
+   * @param record
+   * @return the next length-prefixed string, null if its length is negative
+   */
+  private static String readString(ByteBuffer record) {
+    int length = record.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    record.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+
+  /**
+   * @param sboTerm
+   * @return the ID of the given term number, e.g., SBO:0000001
+   */
+  private static String toId(int sboTerm) {
+    String number = Integer.toString(sboTerm);
+    StringBuilder sb = new StringBuilder("SBO:");
+    for (int i = number.length(); i < 7; i++) {
+      sb.append('0');
+    }
+    return sb.append(number).toString();
+  }
+
+
+  /**
+   * Write a snapshot of the given terms
+   *
+   * @param sboTerms
+   * @param out
+   * @throws IOException
+   */
+  public static void write(Collection<Term> sboTerms, OutputStream out)
+      throws IOException {
+    Map<Integer, Term> sorted = new TreeMap<Integer, Term>();
+    for (Term term : sboTerms) {
+      if (term.getId() != null) {
+        sorted.put(SBO.stringToInt(term.getId()), term);
+      }
+    }
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(records);
+    int start = HEADER + sorted.size() * ENTRY;
+    DataOutputStream snapshot = new DataOutputStream(out);
+    snapshot.writeInt(MAGIC);
+    snapshot.writeInt(sorted.size());
+    for (Map.Entry<Integer, Term> entry : sorted.entrySet()) {
+      Term term = entry.getValue();
+      snapshot.writeInt(entry.getKey());
+      snapshot.writeInt(start + data.size());
+      writeString(data, term.toString());
+      writeString(data, term.getName());
+      writeString(data, term.getDefinition());
+      Collection<Term> parents = term.getParentTerms();
+      data.writeInt(parents == null ? 0 : parents.size());
+      if (parents != null) {
+        for (Term parent : parents) {
+          data.writeInt(SBO.stringToInt(parent.getId()));
+        }
+      }
+    }
+    data.flush();
+    records.writeTo(snapshot);
+    snapshot.flush();
+  }
+
+
+  /**
+   * @param data
+   * @param str
+   *        can be {@code null}
+   * @throws IOException
+   */
+  private static void writeString(DataOutputStream data, String str)
+      throws IOException {
+    if (str == null) {
+      data.writeInt(-1);
+      return;
+    }
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+  }
+
+
+  /**
+   * Create the snapshot of all terms of the SBO ontology that comes with
+   * JSBML. This is called at build time.
+   *
+   * @param args
+   *        the snapshot file
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    Path file = Paths.get(args[0]);
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    try (OutputStream out = Files.newOutputStream(file)) {
+      write(SBO.getTerms(), out);
+    }
+  }
+}
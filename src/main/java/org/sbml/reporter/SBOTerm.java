@@ -0,0 +1,153 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.sbml.jsbml.ontology.Term;
+
+/**
+ * This class holds the parts of an SBO term that are used in reports. Terms
+ * are obtained from {@link SBOSnapshot#getTerm(int)}.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class SBOTerm implements Comparable<SBOTerm> {
+
+  private final String       id;
+  private final String       name;
+  /**
+   * The representation of the term in reports
+   */
+  private final String       label;
+  private final String       definition;
+  /**
+   * IDs of the direct parents of the term
+   */
+  private final List<String> parents;
+
+
+  /**
+   * @param id
+   * @param name
+   * @param label
+   * @param definition
+   * @param parents
+   */
+  public SBOTerm(String id, String name, String label, String definition,
+    List<String> parents) {
+    this.id = id;
+    this.name = name;
+    this.label = label;
+    this.definition = definition;
+    this.parents = Collections.unmodifiableList(new ArrayList<String>(parents));
+  }
+
+
+  /**
+   * @param term
+   *        a term of JSBML's SBO ontology
+   * @return the corresponding SBOTerm
+   */
+  public static SBOTerm valueOf(Term term) {
+    List<String> parents = new ArrayList<String>();
+    if (term.getParentTerms() != null) {
+      for (Term parent : term.getParentTerms()) {
+        parents.add(parent.getId());
+      }
+    }
+    return new SBOTerm(term.getId(), term.getName(), term.toString(),
+      term.getDefinition(), parents);
+  }
+
+
+  /**
+   * @return the ID, e.g., SBO:0000001
+   */
+  public String getId() {
+    return id;
+  }
+
+
+  /**
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+
+  /**
+   * @return the definition
+   */
+  public String getDefinition() {
+    return definition;
+  }
+
+
+  /**
+   * @return the IDs of the direct parents
+   */
+  public List<String> getParents() {
+    return parents;
+  }
+
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Comparable#compareTo(java.lang.Object)
+   */
+  @Override
+  public int compareTo(SBOTerm term) {
+    return id.compareTo(term.id);
+  }
+
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof SBOTerm) && id.equals(((SBOTerm) obj).id);
+  }
+
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+
+
+  /**
+   * @return the representation of the term in reports, which is the same as
+   *         the one of JSBML's terms
+   */
+  @Override
+  public String toString() {
+    return label;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.sbml.jsbml.AbstractNamedSBase;
+
+/**
+ * This class contains an inverted index over the IDs, names and SBO terms of
+ * the compartments, species and reactions of a model. Each token is mapped to
+ * the ascending positions of the elements in which it occurs.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class SearchIndex {
+
+  private List<AbstractNamedSBase> elements =
+      new ArrayList<AbstractNamedSBase>();
+  /**
+   * Maps each token to the positions of the elements containing it. The first
+   * entry of each array is the number of positions it holds.
+   */
+  private Map<String, int[]>       postings = new HashMap<String, int[]>();
+
+
+  /**
+   * Add an element to the index
+   *
+   * @param sBase
+   * @param sboTerm
+   *        the SBO term of the element, can be {@code null}
+   */
+  public void add(AbstractNamedSBase sBase, SBOTerm sboTerm) {
+    int position = elements.size();
+    elements.add(sBase);
+    addTokens(sBase.getId(), position);
+    if (sBase.isSetName()) {
+      addTokens(sBase.getName(), position);
+    }
+    if (sboTerm != null) {
+      addTokens(sboTerm.getId(), position);
+      addTokens(sboTerm.getName(), position);
+    }
+  }
+
+
+  /**
+   * Split given text into tokens and add the position to each of them
+   *
+   * @param text
+   * @param position
+   */
+  private void addTokens(String text, int position) {
+    if (text == null) {
+      return;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length();) {
+      int c = (i < text.length()) ? text.codePointAt(i) : -1;
+      boolean inToken = (c >= 0) && isTokenCharacter(c);
+      if (inToken && (start < 0)) {
+        start = i;
+      } else if (!inToken && (start >= 0)) {
+        // the same normalization as in the search script of the report
+        addPosition(text.substring(start, i).toLowerCase(Locale.ROOT),
+          position);
+        start = -1;
+      }
+      i += (c >= 0) ? Character.charCount(c) : 1;
+    }
+  }
+
+
+  /**
+   * @param codePoint
+   * @return whether the given character is a letter or number, like the
+   *         classes \p{L} and \p{N} the search script splits queries with
+   */
+  private static boolean isTokenCharacter(int codePoint) {
+    switch (Character.getType(codePoint)) {
+    case Character.DECIMAL_DIGIT_NUMBER:
+    case Character.LETTER_NUMBER:
+    case Character.OTHER_NUMBER:
+      return true;
+    default:
+      return Character.isLetter(codePoint);
+    }
+  }
+
+
+  /**
+   * Append a position to the postings of given token unless it is already
+   * the last one
+   *
+   * @param token
+   * @param position
+   */
+  private void addPosition(String token, int position) {
+    int[] list = postings.get(token);
+    if (list == null) {
+      list = new int[4];
+    } else if (list[list[0]] == position) {
+      return;
+    } else if (list[0] + 1 == list.length) {
+      list = Arrays.copyOf(list, 2 * list.length);
+    }
+    list[++list[0]] = position;
+    postings.put(token, list);
+  }
+
+
+  /**
+   * @return number of indexed elements
+   */
+  public int size() {
+    return elements.size();
+  }
+
+
+  /**
+   * @param position
+   * @return the element at given position
+   */
+  public AbstractNamedSBase getElement(int position) {
+    return elements.get(position);
+  }
+
+
+  /**
+   * @return all tokens in alphabetical order
+   */
+  public Set<String> getTokens() {
+    return new TreeSet<String>(postings.keySet());
+  }
+
+
+  /**
+   * @param token
+   * @return the ascending positions of all elements that contain given token
+   */
+  public int[] getPositions(String token) {
+    int[] list = postings.get(token);
+    if (list == null) {
+      return new int[0];
+    }
+    return Arrays.copyOfRange(list, 1, list[0] + 1);
+  }
+}
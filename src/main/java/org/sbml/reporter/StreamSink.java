@@ -0,0 +1,107 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * A {@link ReportSink} that writes a report into a stream, e.g., the standard
+ * output, instead of files. As a stream cannot hold several files at a time,
+ * this sink only accepts reports that do not use separate files. The stream
+ * is flushed, but not closed, when the report is complete.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class StreamSink implements ReportSink {
+
+  private final OutputStream        out;
+  private final WritableByteChannel channel;
+  /**
+   * Whether a file is currently being written into the stream
+   */
+  private boolean                   busy = false;
+
+
+  /**
+   * @param out
+   */
+  public StreamSink(OutputStream out) {
+    this.out = out;
+    channel = Channels.newChannel(out);
+  }
+
+
+  @Override
+  public synchronized WritableByteChannel open(Path path) throws IOException {
+    if (busy) {
+      throw new IOException("Cannot write " + path.getFileName()
+          + " into a stream while another file is open.");
+    }
+    busy = true;
+    return new WritableByteChannel() {
+
+      private boolean open = true;
+
+
+      @Override
+      public int write(ByteBuffer src) throws IOException {
+        int count = channel.write(src);
+        // the writer passes complete buffers or sections
+        out.flush();
+        return count;
+      }
+
+
+      @Override
+      public boolean isOpen() {
+        return open;
+      }
+
+
+      @Override
+      public void close() throws IOException {
+        if (open) {
+          open = false;
+          synchronized (StreamSink.this) {
+            busy = false;
+          }
+          out.flush();
+        }
+      }
+    };
+  }
+
+
+  @Override
+  public void commit(WritableByteChannel channel) throws IOException {
+    // the content has already been passed on
+  }
+
+
+  @Override
+  public void discard(WritableByteChannel channel) throws IOException {
+    // whatever has been written to a stream cannot be taken back
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.sbml.jsbml.SBMLDocument;
+
+/**
+ * This class creates a short summary of a model instead of a full report:
+ * the numbers of elements per compartment, the number of reactions without
+ * kinetic law, the coverage with SBO terms and the largest compartments. It
+ * is based on {@link ModelStatistics} and hence does not need the complete
+ * {@link Preprocessor} pass, which makes it suitable for dashboards over many
+ * models.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class SummaryBuilder {
+
+  /**
+   * The formats of summaries
+   */
+  public enum Format {
+    /**
+     * A small HTML page
+     */
+    HTML("html"),
+    /**
+     * A single JSON object
+     */
+    JSON("json");
+
+    private final String extension;
+
+
+    /**
+     * @param extension
+     */
+    private Format(String extension) {
+      this.extension = extension;
+    }
+
+
+    /**
+     * @return the file extension of summaries in this format
+     */
+    public String getExtension() {
+      return extension;
+    }
+  }
+
+  /**
+   * Number of largest compartments listed by default
+   */
+  public static final int DEFAULT_TOP_N = 10;
+
+  private Format          format        = Format.HTML;
+  private int             topN          = DEFAULT_TOP_N;
+
+
+  /**
+   * @param format
+   *        the format of the summaries
+   */
+  public void setFormat(Format format) {
+    this.format = format;
+  }
+
+
+  /**
+   * @return the format of the summaries
+   */
+  public Format getFormat() {
+    return format;
+  }
+
+
+  /**
+   * @param topN
+   *        the number of largest compartments to be listed
+   */
+  public void setTopN(int topN) {
+    if (topN < 0) {
+      throw new IllegalArgumentException("Negative number of compartments "
+          + topN);
+    }
+    this.topN = topN;
+  }
+
+
+  /**
+   * @return the number of largest compartments to be listed
+   */
+  public int getTopN() {
+    return topN;
+  }
+
+
+  /**
+   * @param sbmlDocument
+   * @return the summary of the given document
+   */
+  public String createSummary(SBMLDocument sbmlDocument) {
+    ModelStatistics statistics = new ModelStatistics(sbmlDocument);
+    String name = AbstractBuilder.getName(sbmlDocument);
+    return format == Format.JSON ? createJSON(name, statistics)
+      : createHTML(name, statistics);
+  }
+
+
+  /**
+   * Write the summary of the given document into the given sink
+   *
+   * @param sbmlDocument
+   * @param file
+   * @param sink
+   * @throws IOException
+   */
+  public void write(SBMLDocument sbmlDocument, Path file, ReportSink sink)
+      throws IOException {
+    String summary = createSummary(sbmlDocument);
+    WritableByteChannel channel = sink.open(file);
+    Writer writer = new ChannelWriter(channel);
+    boolean complete = false;
+    try {
+      writer.write(summary);
+      writer.close();
+      sink.commit(channel);
+      complete = true;
+    } finally {
+      if (!complete) {
+        sink.discard(channel);
+        writer.close();
+      }
+    }
+  }
+
+
+  /**
+   * @param name
+   * @param statistics
+   * @return String
+   */
+  private String createHTML(String name, ModelStatistics statistics) {
+    HTMLTranslator translator = new HTMLTranslator();
+    StringBuilder sb = new StringBuilder();
+    sb.append(translator.initializeDocument());
+    if (name != null) {
+      sb.append(translator.createHeading(name, 1));
+    }
+    sb.append(translator.openTable("Summary", 2));
+    List<Cell> cells = new ArrayList<Cell>();
+    for (Map.Entry<String, String> entry : getTotals(statistics).entrySet()) {
+      cells.add(new Cell(entry.getKey(), true));
+      cells.add(new Cell(entry.getValue(), false));
+      sb.append(translator.createTableRow(cells));
+      cells.clear();
+    }
+    sb.append(translator.closeTable());
+    sb.append(translator.openTable("Largest Compartments", 4));
+    sb.append(translator.createTableHeading("Compartment", "Species",
+      "Reactions", "Elements"));
+    for (ModelStatistics.CompartmentCounts counts : statistics
+        .getLargestCompartments(topN)) {
+      cells.add(new Cell(counts.getName() != null ? counts.getName()
+        : counts.getId(), false));
+      cells.add(new Cell(Integer.toString(counts.getSpeciesCount()), false));
+      cells.add(new Cell(Integer.toString(counts.getReactionCount()), false));
+      cells.add(new Cell(Integer.toString(counts.getElementCount()), false));
+      sb.append(translator.createTableRow(cells));
+      cells.clear();
+    }
+    sb.append(translator.closeTable());
+    Collection<ModelStatistics.CompartmentCounts> compartments =
+        statistics.getCompartmentCounts();
+    sb.append(translator.openTable("Compartments", 4, compartments.size()));
+    sb.append(translator.createTableHeading("Compartment", "Name", "Species",
+      "Reactions"));
+    for (ModelStatistics.CompartmentCounts counts : compartments) {
+      cells.add(new Cell(counts.getId(), false));
+      cells.add(new Cell(counts.getName() != null ? counts.getName() : "",
+        false));
+      cells.add(new Cell(Integer.toString(counts.getSpeciesCount()), false));
+      cells.add(new Cell(Integer.toString(counts.getReactionCount()), false));
+      sb.append(translator.createTableRow(cells));
+      cells.clear();
+    }
+    sb.append(translator.closeTable());
+    sb.append(translator.terminateDocument());
+    return sb.toString();
+  }
+
+
+  /**
+   * @param statistics
+   * @return the labels and values of the totals of a model
+   */
+  private static Map<String, String> getTotals(ModelStatistics statistics) {
+    Map<String, String> totals = new LinkedHashMap<String, String>();
+    totals.put("Compartments",
+      Integer.toString(statistics.getCompartmentCount()));
+    totals.put("Species", Integer.toString(statistics.getSpeciesCount()));
+    totals.put("Reactions", Integer.toString(statistics.getReactionCount()));
+    totals.put("Reactions without kinetic law",
+      Integer.toString(statistics.getReactionsWithoutKineticLaw()));
+    totals.put("SBO coverage", String.format(Locale.ENGLISH, "%.1f %%",
+      100d * statistics.getSBOCoverage()));
+    return totals;
+  }
+
+
+  /**
+   * @param name
+   * @param statistics
+   * @return a JSON object on a single line
+   */
+  private String createJSON(String name, ModelStatistics statistics) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"name\":");
+    JSON.quote(sb, name);
+    sb.append(",\"compartments\":").append(statistics.getCompartmentCount());
+    sb.append(",\"species\":").append(statistics.getSpeciesCount());
+    sb.append(",\"reactions\":").append(statistics.getReactionCount());
+    sb.append(",\"reactionsWithoutKineticLaw\":")
+    .append(statistics.getReactionsWithoutKineticLaw());
+    sb.append(",\"sboTerms\":").append(statistics.getSBOTermCount());
+    sb.append(",\"sboCoverage\":").append(statistics.getSBOCoverage());
+    sb.append(",\"compartmentCounts\":");
+    appendCounts(sb, statistics.getCompartmentCounts());
+    sb.append(",\"largestCompartments\":[");
+    boolean first = true;
+    for (ModelStatistics.CompartmentCounts counts : statistics
+        .getLargestCompartments(topN)) {
+      if (!first) {
+        sb.append(',');
+      }
+      JSON.quote(sb, counts.getId());
+      first = false;
+    }
+    sb.append("]}\n");
+    return sb.toString();
+  }
+
+
+  /**
+   * Append an object that maps the IDs of compartments to their counts
+   *
+   * @param sb
+   * @param compartments
+   */
+  private static void appendCounts(StringBuilder sb,
+    Iterable<ModelStatistics.CompartmentCounts> compartments) {
+    sb.append('{');
+    boolean first = true;
+    for (ModelStatistics.CompartmentCounts counts : compartments) {
+      if (!first) {
+        sb.append(',');
+      }
+      JSON.quote(sb, counts.getId());
+      sb.append(":{\"name\":");
+      JSON.quote(sb, counts.getName());
+      sb.append(",\"species\":").append(counts.getSpeciesCount());
+      sb.append(",\"reactions\":").append(counts.getReactionCount());
+      sb.append('}');
+      first = false;
+    }
+    sb.append('}');
+  }
+}
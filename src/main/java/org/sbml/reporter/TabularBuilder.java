@@ -0,0 +1,407 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.ModifierSpeciesReference;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.Species;
+import org.sbml.jsbml.SpeciesReference;
+
+/**
+ * This class extends the methods of the AbstractBuilder class to export the
+ * compartments, species and reactions of a model as tables with tab or comma
+ * separated values. The report file receives the table of compartments, while
+ * species and reactions are written into two files next to it. Fields are
+ * quoted where necessary as described in RFC 4180, numbers are written with
+ * full precision and unset values are left empty.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class TabularBuilder extends AbstractBuilder {
+
+  /**
+   * Supported formats of the tables
+   */
+  public enum Format {
+    /**
+     * Comma separated values
+     */
+    CSV(',', "csv"),
+    /**
+     * Tab separated values
+     */
+    TSV('\t', "tsv");
+
+    private final char   separator;
+    private final String extension;
+
+
+    /**
+     * @param separator
+     * @param extension
+     */
+    private Format(char separator, String extension) {
+      this.separator = separator;
+      this.extension = extension;
+    }
+
+
+    /**
+     * @return the character between two fields of a row
+     */
+    public char getSeparator() {
+      return separator;
+    }
+
+
+    /**
+     * @return the usual file extension of this format
+     */
+    public String getExtension() {
+      return extension;
+    }
+  }
+
+  /**
+   * Separator between several values within one field, e.g., the reactants
+   * of a reaction
+   */
+  private static final char   LIST_SEPARATOR       = ';';
+  private static final String COMPARTMENT_HEADINGS =
+      "id,name,size,units,spatialDimensions,constant,outside,sboTerm";
+  private static final String SPECIES_HEADINGS     =
+      "id,name,compartment,initialAmount,initialConcentration,units,"
+          + "hasOnlySubstanceUnits,boundaryCondition,constant,"
+          + "conversionFactor,sboTerm";
+  private static final String REACTION_HEADINGS    =
+      "id,name,compartments,reversible,reactants,products,modifiers,sboTerm,"
+          + "kineticLaw";
+  private Format              format               = Format.TSV;
+  /**
+   * IDs of the reactions that have already been written, because a reaction
+   * belongs to every compartment of its reactants and products
+   */
+  private final Set<String>   writtenReactions     = new HashSet<String>();
+
+
+  /**
+   * @param format
+   *        the format of all tables, tab separated values by default
+   */
+  public void setFormat(Format format) {
+    this.format = format;
+  }
+
+
+  /**
+   * @return the format of all tables
+   */
+  public Format getFormat() {
+    return format;
+  }
+
+
+  @Override
+  public String createDocumentHead(SBMLDocument sbmlDocument,
+    Preprocessor preprocessor) {
+    writtenReactions.clear();
+    return createHeadings(COMPARTMENT_HEADINGS);
+  }
+
+
+  /**
+   * @param headings
+   *        comma separated headings
+   * @return the first row of a table in the current format
+   */
+  private String createHeadings(String headings) {
+    return headings.replace(',', format.getSeparator()) + '\n';
+  }
+
+
+  @Override
+  public String getFileName(ReportSection section, Compartment compartment) {
+    switch (section) {
+    case SPECIES:
+      return getReportBaseName() + "_species." + format.getExtension();
+    case REACTIONS:
+      return getReportBaseName() + "_reactions." + format.getExtension();
+    default:
+      return null;
+    }
+  }
+
+
+  @Override
+  public String createFileHead(ReportSection section, Compartment compartment,
+    String fileName) {
+    return createHeadings(section == ReportSection.SPECIES ? SPECIES_HEADINGS
+      : REACTION_HEADINGS);
+  }
+
+
+  @Override
+  public String createCompartmentOverview(SBMLDocument sbmlDocument) {
+    return "";
+  }
+
+
+  @Override
+  public String createSingleCompartmentSection(
+    Preprocessor preprocessedSBMLdata, Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    appendField(sb, compartment.getId());
+    appendField(sb, compartment.isSetName() ? compartment.getName() : null);
+    if (compartment.isSetSize()) {
+      appendNumber(sb, compartment.getSize());
+    } else {
+      appendField(sb, null);
+    }
+    appendField(sb, getUnits(compartment.getDerivedUnitDefinition()));
+    if (compartment.isSetSpatialDimensions()) {
+      appendNumber(sb, compartment.getSpatialDimensions());
+    } else {
+      appendField(sb, null);
+    }
+    appendBoolean(sb, true, compartment.getConstant());
+    appendField(sb,
+      compartment.isSetOutside() ? compartment.getOutside() : null);
+    appendLastField(sb,
+      compartment.isSetSBOTerm() ? compartment.getSBOTermID() : null);
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createSpeciesSectionOfCompartment(
+    Map<String, List<Species>> mapCompartmentSpecies, Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    for (Species s : mapCompartmentSpecies.get(compartment.getId())) {
+      checkpoint(sb);
+      appendField(sb, s.getId());
+      appendField(sb, s.isSetName() ? s.getName() : null);
+      appendField(sb, compartment.getId());
+      if (s.isSetInitialAmount()) {
+        appendNumber(sb, s.getInitialAmount());
+      } else {
+        appendField(sb, null);
+      }
+      if (s.isSetInitialConcentration()) {
+        appendNumber(sb, s.getInitialConcentration());
+      } else {
+        appendField(sb, null);
+      }
+      appendField(sb, getUnits(s.getDerivedUnitDefinition()));
+      appendBoolean(sb, s.isSetHasOnlySubstanceUnits(),
+        s.getHasOnlySubstanceUnits());
+      appendBoolean(sb, s.isSetBoundaryCondition(), s.getBoundaryCondition());
+      appendBoolean(sb, s.isSetConstant(), s.getConstant());
+      appendField(sb,
+        s.isSetConversionFactor() ? s.getConversionFactor() : null);
+      appendLastField(sb, s.isSetSBOTerm() ? s.getSBOTermID() : null);
+    }
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createReactionSectionOfCompartment(
+    Map<String, List<Reaction>> mapCompartmentReactions,
+    Compartment compartment) {
+    StringBuilder sb = new StringBuilder();
+    StringBuilder list = new StringBuilder();
+    for (Reaction r : mapCompartmentReactions.get(compartment.getId())) {
+      checkpoint(sb);
+      if (!writtenReactions.add(r.getId())) {
+        continue;
+      }
+      appendField(sb, r.getId());
+      appendField(sb, r.isSetName() ? r.getName() : null);
+      list.setLength(0);
+      for (Iterator<String> iterator =
+          getCompartmentsOfReaction(r).iterator(); iterator.hasNext();) {
+        list.append(iterator.next());
+        if (iterator.hasNext()) {
+          list.append(LIST_SEPARATOR);
+        }
+      }
+      appendField(sb, list);
+      appendBoolean(sb, r.isSetReversible(), r.getReversible());
+      list.setLength(0);
+      appendSpecies(list, r.getListOfReactants());
+      appendField(sb, list);
+      list.setLength(0);
+      appendSpecies(list, r.getListOfProducts());
+      appendField(sb, list);
+      list.setLength(0);
+      if (r.isSetListOfModifiers()) {
+        for (ModifierSpeciesReference modifier : r.getListOfModifiers()) {
+          if (list.length() > 0) {
+            list.append(LIST_SEPARATOR);
+          }
+          list.append(modifier.getSpecies());
+        }
+      }
+      appendField(sb, list);
+      appendField(sb, r.isSetSBOTerm() ? r.getSBOTermID() : null);
+      String kineticLaw = null;
+      if (isIncluded(ReportSection.KINETIC_LAWS) && r.isSetKineticLaw()
+          && r.getKineticLaw().isSetMath()) {
+        kineticLaw = getFormula(r.getKineticLaw().getMath());
+      }
+      appendLastField(sb, kineticLaw);
+    }
+    return sb.toString();
+  }
+
+
+  @Override
+  public String createSectionOfReactions(List<Reaction> reactions) {
+    return "";
+  }
+
+
+  @Override
+  public String createDocumentFoot(Preprocessor preprocessor) {
+    return "";
+  }
+
+
+  /**
+   * Appends the species of the given references separated by
+   * {@link #LIST_SEPARATOR}, each preceded by its stoichiometry if this is set
+   * and differs from one, e.g., {@code 2 A;B}
+   *
+   * @param sb
+   * @param references
+   */
+  private static void appendSpecies(StringBuilder sb,
+    List<SpeciesReference> references) {
+    for (SpeciesReference reference : references) {
+      if (sb.length() > 0) {
+        sb.append(LIST_SEPARATOR);
+      }
+      if (reference.isSetStoichiometry()
+          && (reference.getStoichiometry() != 1d)) {
+        sb.append(reference.getStoichiometry());
+        sb.append(' ');
+      }
+      sb.append(reference.getSpecies());
+    }
+  }
+
+
+  /**
+   * Appends a number in the shortest representation that still identifies it
+   * uniquely followed by a separator
+   *
+   * @param sb
+   * @param number
+   */
+  private void appendNumber(StringBuilder sb, double number) {
+    sb.append(number);
+    sb.append(format.getSeparator());
+  }
+
+
+  /**
+   * Appends a boolean value followed by a separator
+   *
+   * @param sb
+   * @param isSet
+   *        if false, the field remains empty
+   * @param value
+   */
+  private void appendBoolean(StringBuilder sb, boolean isSet, boolean value) {
+    if (isSet) {
+      sb.append(value);
+    }
+    sb.append(format.getSeparator());
+  }
+
+
+  /**
+   * Appends a field followed by a separator
+   *
+   * @param sb
+   * @param value
+   *        can be null
+   */
+  private void appendField(StringBuilder sb, CharSequence value) {
+    quote(sb, value);
+    sb.append(format.getSeparator());
+  }
+
+
+  /**
+   * Appends the last field of a row followed by the end of the line
+   *
+   * @param sb
+   * @param value
+   *        can be null
+   */
+  private void appendLastField(StringBuilder sb, CharSequence value) {
+    quote(sb, value);
+    sb.append('\n');
+  }
+
+
+  /**
+   * Appends the given value, which is enclosed in double quotes if it contains
+   * the separator, a double quote or a line break. Double quotes within the
+   * value are doubled.
+   *
+   * @param sb
+   * @param value
+   *        can be null
+   */
+  private void quote(StringBuilder sb, CharSequence value) {
+    if (value == null) {
+      return;
+    }
+    boolean quote = false;
+    for (int i = 0; (i < value.length()) && !quote; i++) {
+      char c = value.charAt(i);
+      quote = (c == format.getSeparator()) || (c == '"') || (c == '\n')
+          || (c == '\r');
+    }
+    if (!quote) {
+      sb.append(value);
+      return;
+    }
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        sb.append('"');
+      }
+      sb.append(c);
+    }
+    sb.append('"');
+  }
+}
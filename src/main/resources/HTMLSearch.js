@@ -0,0 +1,93 @@
+/*
+ * Queries the prebuilt search index of an SBMLreporter HTML report, which is
+ * defined above as sbmlReportIndex: "d" holds one entry per element (type, ID,
+ * name and link), "k" the alphabetically sorted tokens and "p" the positions
+ * of the elements that contain the token at the same index. Each word of a
+ * query is matched as a prefix of the tokens and all words need to match.
+ */
+(function () {
+  'use strict';
+
+  var MAX_RESULTS = 50;
+  var index = window.sbmlReportIndex;
+  var input = document.getElementById('searchInput');
+  var results = document.getElementById('searchResults');
+  if (!index || !input || !results) {
+    return;
+  }
+
+  function tokenize(query) {
+    return query.toLowerCase().split(/[^\p{L}\p{N}]+/u).filter(
+      function (token) {
+        return token.length > 0;
+      });
+  }
+
+  function lowerBound(keys, prefix) {
+    var low = 0, high = keys.length;
+    while (low < high) {
+      var mid = (low + high) >>> 1;
+      if (keys[mid] < prefix) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  function lookup(prefix) {
+    var found = {};
+    for (var i = lowerBound(index.k, prefix); (i < index.k.length)
+        && (index.k[i].lastIndexOf(prefix, 0) === 0); i++) {
+      var positions = index.p[i];
+      for (var j = 0; j < positions.length; j++) {
+        found[positions[j]] = true;
+      }
+    }
+    return found;
+  }
+
+  function search(query) {
+    var tokens = tokenize(query);
+    if (tokens.length === 0) {
+      return [];
+    }
+    var matches = lookup(tokens[0]);
+    for (var i = 1; i < tokens.length; i++) {
+      var next = lookup(tokens[i]);
+      for (var position in matches) {
+        if (!next[position]) {
+          delete matches[position];
+        }
+      }
+    }
+    return Object.keys(matches).map(Number).sort(function (a, b) {
+      return a - b;
+    });
+  }
+
+  function show(positions) {
+    results.textContent = '';
+    positions.slice(0, MAX_RESULTS).forEach(function (position) {
+      var entry = index.d[position];
+      var item = document.createElement('li');
+      var link = document.createElement('a');
+      link.href = entry[3];
+      link.textContent = entry[2];
+      item.appendChild(link);
+      item.appendChild(document.createTextNode(' (' + entry[0] + ' '
+        + entry[1] + ')'));
+      results.appendChild(item);
+    });
+    if (positions.length > MAX_RESULTS) {
+      var more = document.createElement('li');
+      more.textContent = (positions.length - MAX_RESULTS) + ' more';
+      results.appendChild(more);
+    }
+  }
+
+  input.addEventListener('input', function () {
+    show(search(input.value));
+  });
+})();
@@ -0,0 +1,209 @@
+/*
+ * Renders the virtual tables of an SBMLreporter HTML report. Each table is a
+ * div of class "vt" that contains its rows as JSON array; the first row holds
+ * the column headings. Only the rows within the visible part of the table are
+ * turned into DOM elements. A click on a heading sorts the table by this
+ * column and the text field above the table filters its rows.
+ */
+(function () {
+  'use strict';
+
+  var ROW_HEIGHT = 24;
+  var VISIBLE_ROWS = 25;
+  var OVERSCAN = 10;
+  var tables = [];
+
+  function text(html) {
+    return html.replace(/<[^>]*>/g, '');
+  }
+
+  function compare(a, b) {
+    var x = parseFloat(a), y = parseFloat(b);
+    if (!isNaN(x) && !isNaN(y) && x !== y) {
+      return x - y;
+    }
+    return a < b ? -1 : (a > b ? 1 : 0);
+  }
+
+  function createTable(numColumns) {
+    var table = document.createElement('table');
+    table.style.tableLayout = 'fixed';
+    table.style.width = '100%';
+    table.style.borderCollapse = 'collapse';
+    var colgroup = document.createElement('colgroup');
+    for (var i = 0; i < numColumns; i++) {
+      colgroup.appendChild(document.createElement('col'));
+    }
+    table.appendChild(colgroup);
+    return table;
+  }
+
+  function VirtualTable(container) {
+    var data = JSON.parse(container.querySelector('script').textContent);
+    this.heading = data[0];
+    this.rows = data.slice(1);
+    this.view = this.rows;
+    this.texts = null;
+    this.sortColumn = -1;
+    this.ascending = true;
+    this.first = -1;
+    this.last = -1;
+
+    var self = this;
+    var filter = document.createElement('input');
+    filter.type = 'search';
+    filter.placeholder = 'Filter ' + this.rows.length + ' rows';
+    filter.addEventListener('input', function () {
+      self.filter(filter.value);
+    });
+    container.appendChild(filter);
+
+    var head = createTable(this.heading.length);
+    var headRow = head.insertRow();
+    this.heading.forEach(function (html, column) {
+      var th = document.createElement('th');
+      th.innerHTML = html;
+      th.style.cursor = 'pointer';
+      th.addEventListener('click', function () {
+        self.sort(column);
+      });
+      headRow.appendChild(th);
+    });
+    container.appendChild(head);
+
+    this.viewport = document.createElement('div');
+    this.viewport.style.position = 'relative';
+    this.viewport.style.overflowY = 'auto';
+    this.viewport.style.height = (VISIBLE_ROWS * ROW_HEIGHT) + 'px';
+    this.spacer = document.createElement('div');
+    this.body = createTable(this.heading.length);
+    this.body.style.position = 'absolute';
+    this.body.style.top = '0';
+    this.tbody = document.createElement('tbody');
+    this.body.appendChild(this.tbody);
+    this.viewport.appendChild(this.spacer);
+    this.viewport.appendChild(this.body);
+    container.appendChild(this.viewport);
+
+    var pending = false;
+    this.viewport.addEventListener('scroll', function () {
+      if (!pending) {
+        pending = true;
+        window.requestAnimationFrame(function () {
+          pending = false;
+          self.render(false);
+        });
+      }
+    });
+    this.render(true);
+  }
+
+  VirtualTable.prototype.getTexts = function () {
+    if (this.texts === null) {
+      this.texts = this.rows.map(function (row) {
+        return row.map(text);
+      });
+      var texts = this.texts;
+      this.rows.forEach(function (row, index) {
+        row.index = index;
+      });
+      this.textOf = function (row) {
+        return texts[row.index];
+      };
+    }
+    return this.texts;
+  };
+
+  VirtualTable.prototype.filter = function (query) {
+    this.getTexts();
+    var textOf = this.textOf;
+    var needle = query.toLowerCase();
+    this.view = needle.length === 0 ? this.rows : this.rows.filter(
+      function (row) {
+        return textOf(row).join('\t').toLowerCase().indexOf(needle) >= 0;
+      });
+    this.applySort();
+    this.viewport.scrollTop = 0;
+    this.render(true);
+  };
+
+  VirtualTable.prototype.sort = function (column) {
+    this.ascending = (this.sortColumn === column) ? !this.ascending : true;
+    this.sortColumn = column;
+    this.applySort();
+    this.render(true);
+  };
+
+  VirtualTable.prototype.applySort = function () {
+    if (this.sortColumn < 0) {
+      return;
+    }
+    this.getTexts();
+    var textOf = this.textOf, column = this.sortColumn;
+    var sign = this.ascending ? 1 : -1;
+    if (this.view === this.rows) {
+      this.view = this.rows.slice();
+    }
+    this.view.sort(function (a, b) {
+      return sign * compare(textOf(a)[column], textOf(b)[column]);
+    });
+  };
+
+  VirtualTable.prototype.render = function (force) {
+    this.spacer.style.height = (this.view.length * ROW_HEIGHT) + 'px';
+    var first = Math.max(0,
+      Math.floor(this.viewport.scrollTop / ROW_HEIGHT) - OVERSCAN);
+    var last = Math.min(this.view.length,
+      first + VISIBLE_ROWS + 2 * OVERSCAN);
+    if (!force && first === this.first && last === this.last) {
+      return;
+    }
+    this.first = first;
+    this.last = last;
+    this.body.style.top = (first * ROW_HEIGHT) + 'px';
+    var html = [];
+    for (var i = first; i < last; i++) {
+      html.push('<tr style="height:' + ROW_HEIGHT + 'px">');
+      var row = this.view[i];
+      for (var j = 0; j < row.length; j++) {
+        html.push('<td style="overflow:hidden;white-space:nowrap">');
+        html.push(row[j]);
+        html.push('</td>');
+      }
+      html.push('</tr>');
+    }
+    this.tbody.innerHTML = html.join('');
+  };
+
+  VirtualTable.prototype.reveal = function (id) {
+    var needle = 'id="' + id + '"';
+    for (var i = 0; i < this.view.length; i++) {
+      if (this.view[i].join('').indexOf(needle) >= 0) {
+        this.viewport.scrollTop = i * ROW_HEIGHT;
+        this.render(true);
+        this.viewport.scrollIntoView();
+        return true;
+      }
+    }
+    return false;
+  };
+
+  function revealHash() {
+    var id = decodeURIComponent(window.location.hash.substring(1));
+    if ((id.length === 0) || document.getElementById(id)) {
+      return;
+    }
+    for (var i = 0; i < tables.length; i++) {
+      if (tables[i].reveal(id)) {
+        return;
+      }
+    }
+  }
+
+  Array.prototype.forEach.call(document.querySelectorAll('div.vt'),
+    function (container) {
+      tables.push(new VirtualTable(container));
+    });
+  window.addEventListener('hashchange', revealHash);
+  revealHash();
+})();
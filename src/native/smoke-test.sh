@@ -0,0 +1,37 @@
+#!/bin/sh
+# ----------------------------------------------------------------------------
+# This file is part of SBMLreporter, a documentation tool for systems biology
+# models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+# latest version of SBMLreporter and more information about this program.
+# ----------------------------------------------------------------------------
+# Compares the reports of the native executable byte for byte with those of
+# the JVM build.
+#
+# Usage: smoke-test.sh <native executable> <class path> <SBML file>
+set -eu
+
+if [ $# -ne 3 ]; then
+  echo "Usage: $0 <native executable> <class path> <SBML file>" >&2
+  exit 2
+fi
+NATIVE=$1
+CLASSPATH=$2
+MODEL=$3
+FORMATS=html,tex,ndjson,tsv,csv,graphml,dot,summary,summary-json
+
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+mkdir "$WORK/jvm" "$WORK/native"
+
+java -cp "$CLASSPATH" org.sbml.reporter.SBMLreporter -f "$FORMATS" \
+  "$MODEL" "$WORK/jvm"
+"$NATIVE" -f "$FORMATS" "$MODEL" "$WORK/native"
+diff -r "$WORK/jvm" "$WORK/native"
+
+# streaming through the standard input and output
+java -cp "$CLASSPATH" org.sbml.reporter.SBMLreporter - - < "$MODEL" \
+  > "$WORK/jvm.html"
+"$NATIVE" - - < "$MODEL" > "$WORK/native.html"
+cmp "$WORK/jvm.html" "$WORK/native.html"
+
+echo "Native reports are identical to the JVM reports"
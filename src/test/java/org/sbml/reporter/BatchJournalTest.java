@@ -0,0 +1,194 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a {@link BatchJournal} recognizes completed inputs across runs.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class BatchJournalTest {
+
+  private static final String KEY = "[html];[SPECIES]";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+  private Path file;
+  private Path input;
+  private Path report;
+
+
+  /**
+   * Creates an input and its report
+   */
+  @Before
+  public void setUp() throws IOException {
+    directory = folder.getRoot().toPath();
+    file = directory.resolve(BatchJournal.DEFAULT_FILE_NAME);
+    input = write("model.xml", "<sbml/>");
+    report = write("model.html", "<html/>");
+  }
+
+
+  /**
+   * @param name
+   * @param content
+   * @return the file with the given name and content
+   * @throws IOException
+   */
+  private Path write(String name, String content) throws IOException {
+    return Files.write(directory.resolve(name),
+      content.getBytes(StandardCharsets.UTF_8));
+  }
+
+
+  /**
+   * Records the input with its current hash
+   *
+   * @param input
+   * @param outputs
+   * @throws IOException
+   */
+  private void record(Path input, List<Path> outputs) throws IOException {
+    try (BatchJournal journal = new BatchJournal(file)) {
+      journal.record(input, BatchJournal.hash(input), KEY, outputs);
+    }
+  }
+
+
+  /**
+   * @param input
+   * @param key
+   * @return whether a journal that is opened anew considers the input as
+   *         complete
+   * @throws IOException
+   */
+  private boolean isComplete(Path input, String key) throws IOException {
+    try (BatchJournal journal = new BatchJournal(file)) {
+      return journal.isComplete(input, BatchJournal.hash(input), key);
+    }
+  }
+
+
+  /**
+   * Recorded inputs are complete in later runs
+   */
+  @Test
+  public void testRecord() throws IOException {
+    assertFalse(isComplete(input, KEY));
+    record(input, Collections.singletonList(report));
+    assertTrue(isComplete(input, KEY));
+    assertFalse(isComplete(input, KEY + ";[tex]"));
+  }
+
+
+  /**
+   * An input whose content has changed is reported again
+   */
+  @Test
+  public void testChangedInput() throws IOException {
+    record(input, Collections.singletonList(report));
+    write("model.xml", "<sbml level=\"3\"/>");
+    assertFalse(isComplete(input, KEY));
+  }
+
+
+  /**
+   * An input is incomplete if one of its reports has been deleted or changed,
+   * even if its size has remained the same
+   */
+  @Test
+  public void testChangedReport() throws IOException {
+    record(input, Collections.singletonList(report));
+    write("model.html", "<HTML/>");
+    assertFalse(isComplete(input, KEY));
+    write("model.html", "<html/>");
+    assertTrue(isComplete(input, KEY));
+    Files.delete(report);
+    assertFalse(isComplete(input, KEY));
+  }
+
+
+  /**
+   * An incomplete last line left by a crash is ignored and terminated before
+   * the next line is appended
+   */
+  @Test
+  public void testTornLine() throws IOException {
+    record(input, Collections.singletonList(report));
+    String complete =
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    Path other = write("other.xml", "<sbml/>");
+    record(other, Collections.<Path>emptyList());
+    String content =
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    // cut the last line in the middle of the name of the input
+    Files.write(file, content.substring(0, content.length() - 5)
+      .getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+    assertTrue(isComplete(input, KEY));
+    assertFalse(isComplete(other, KEY));
+    record(other, Collections.<Path>emptyList());
+    assertTrue(isComplete(input, KEY));
+    assertTrue(isComplete(other, KEY));
+    content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    assertTrue(content.startsWith(complete));
+    assertEquals(3, content.split("\n", -1).length - 1);
+  }
+
+
+  /**
+   * Names with tabs, line breaks and backslashes do not break the format of
+   * the journal
+   */
+  @Test
+  public void testEscaping() throws IOException {
+    // such names are not allowed on Windows
+    assumeFalse(File.separatorChar == '\\');
+    Path special = write("a\tb\\n.xml", "<sbml/>");
+    Path output = write("a\nb\\.html", "<html/>");
+    record(special, Collections.singletonList(output));
+    assertTrue(isComplete(special, KEY));
+    assertFalse(isComplete(write("a\tb\n.xml", "<sbml/>"), KEY));
+    String content =
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    assertEquals(1, content.split("\n", -1).length - 1);
+  }
+}
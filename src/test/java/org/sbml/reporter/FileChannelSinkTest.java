@@ -0,0 +1,221 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that a {@link FileChannelSink} only replaces a report once its new
+ * version has been committed.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class FileChannelSinkTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path            directory;
+  private Path            target;
+  private FileChannelSink sink;
+
+
+  /**
+   * Creates a previous version of the report
+   */
+  @Before
+  public void setUp() throws IOException {
+    directory = folder.getRoot().toPath();
+    target = directory.resolve("report.html");
+    Files.write(target, "old".getBytes(StandardCharsets.UTF_8));
+    sink = new FileChannelSink();
+  }
+
+
+  /**
+   * @param channel
+   * @param content
+   * @throws IOException
+   */
+  private static void write(WritableByteChannel channel, String content)
+      throws IOException {
+    ByteBuffer buffer =
+        ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+
+  /**
+   * @param file
+   * @return the content of the given file
+   * @throws IOException
+   */
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+
+  /**
+   * @return the names of all files in the directory
+   * @throws IOException
+   */
+  private List<String> list() throws IOException {
+    List<String> names = new ArrayList<String>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path file : stream) {
+        names.add(file.getFileName().toString());
+      }
+    }
+    Collections.sort(names);
+    return names;
+  }
+
+
+  /**
+   * The new version replaces the old one only when it is committed
+   */
+  @Test
+  public void testCommit() throws IOException {
+    WritableByteChannel channel = sink.open(target);
+    write(channel, "new");
+    channel.close();
+    assertEquals("old", read(target));
+    assertEquals(2, list().size());
+    sink.commit(channel);
+    assertEquals("new", read(target));
+    assertEquals(Collections.singletonList("report.html"), list());
+  }
+
+
+  /**
+   * Committing closes the channel if this has not been done yet
+   */
+  @Test
+  public void testCommitOpenChannel() throws IOException {
+    WritableByteChannel channel = sink.open(target);
+    write(channel, "new");
+    sink.commit(channel);
+    assertFalse(channel.isOpen());
+    assertEquals("new", read(target));
+    assertEquals(Collections.singletonList("report.html"), list());
+  }
+
+
+  /**
+   * A discarded file is deleted and the old version is kept
+   */
+  @Test
+  public void testDiscard() throws IOException {
+    WritableByteChannel channel = sink.open(target);
+    write(channel, "partial");
+    channel.close();
+    sink.discard(channel);
+    assertEquals("old", read(target));
+    assertEquals(Collections.singletonList("report.html"), list());
+  }
+
+
+  /**
+   * A file that is discarded while it is being written, e.g., because
+   * writing has failed, is deleted when its channel is closed
+   */
+  @Test
+  public void testFailureBeforeClose() throws IOException {
+    WritableByteChannel channel = sink.open(target);
+    write(channel, "partial");
+    sink.discard(channel);
+    assertEquals(2, list().size());
+    channel.close();
+    assertEquals("old", read(target));
+    assertEquals(Collections.singletonList("report.html"), list());
+    try {
+      sink.commit(channel);
+      fail("A discarded file must not be committed");
+    } catch (IOException exc) {
+      assertEquals("old", read(target));
+    }
+  }
+
+
+  /**
+   * Discarding a committed file leaves it in place
+   */
+  @Test
+  public void testDiscardAfterCommit() throws IOException {
+    WritableByteChannel channel = sink.open(target);
+    write(channel, "new");
+    channel.close();
+    sink.commit(channel);
+    sink.discard(channel);
+    assertEquals("new", read(target));
+  }
+
+
+  /**
+   * Files of a report that does not exist yet only appear when committed
+   */
+  @Test
+  public void testNewFile() throws IOException {
+    Path file = directory.resolve("report.tex");
+    WritableByteChannel channel = sink.open(file);
+    write(channel, "new");
+    channel.close();
+    assertFalse(Files.exists(file));
+    sink.commit(channel);
+    assertEquals("new", read(file));
+  }
+
+
+  /**
+   * Without atomic writes, the file is replaced in place immediately
+   */
+  @Test
+  public void testNonAtomic() throws IOException {
+    sink.setAtomic(false);
+    WritableByteChannel channel = sink.open(target);
+    write(channel, "n");
+    channel.close();
+    assertEquals("n", read(target));
+    sink.commit(channel);
+    assertTrue(Files.isRegularFile(target));
+    assertEquals(Collections.singletonList("report.html"), list());
+  }
+}
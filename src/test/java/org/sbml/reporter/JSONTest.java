@@ -0,0 +1,93 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the quoting of strings in {@link JSON}.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class JSONTest {
+
+  /**
+   * A missing string is written as the literal null
+   */
+  @Test
+  public void testNull() {
+    assertEquals("null", JSON.quote(null));
+  }
+
+
+  /**
+   * Plain text is only enclosed in quotes
+   */
+  @Test
+  public void testPlain() {
+    assertEquals("\"\"", JSON.quote(""));
+    assertEquals("\"glucose 6-phosphate\"", JSON.quote("glucose 6-phosphate"));
+  }
+
+
+  /**
+   * Quotes, backslashes and the common whitespace characters have short
+   * escape sequences
+   */
+  @Test
+  public void testShortEscapes() {
+    assertEquals("\"a\\\"b\\\\c\"", JSON.quote("a\"b\\c"));
+    assertEquals("\"\\n\\r\\t\"", JSON.quote("\n\r\t"));
+  }
+
+
+  /**
+   * Other control characters, '&lt;' and the line separators of JavaScript
+   * are written as unicode escapes
+   */
+  @Test
+  public void testUnicodeEscapes() {
+    assertEquals("\"\\u0001\\u001f\"", JSON.quote("\u0001\u001f"));
+    assertEquals("\"\\u003c/script>\"", JSON.quote("</script>"));
+    assertEquals("\"\\u2028\\u2029\"", JSON.quote("\u2028\u2029"));
+  }
+
+
+  /**
+   * Characters outside of the basic multilingual plane are kept
+   */
+  @Test
+  public void testSupplementaryCharacters() {
+    String text = "\u00e4 \ud835\udefc";
+    assertEquals("\"" + text + "\"", JSON.quote(text));
+  }
+
+
+  /**
+   * The quoted string is appended to the given builder
+   */
+  @Test
+  public void testAppend() {
+    StringBuilder sb = new StringBuilder("[");
+    assertEquals("[\"x\"", JSON.quote(sb, "x").toString());
+  }
+}
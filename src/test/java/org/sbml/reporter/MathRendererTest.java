@@ -0,0 +1,235 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.ASTNode.Type;
+
+/**
+ * Tests the placement of parentheses, the flattening of associative operators
+ * and the caching of subtrees in {@link LaTeXMathRenderer},
+ * {@link MathMLRenderer} and {@link InfixMathRenderer}.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class MathRendererTest {
+
+  /**
+   * @param type
+   * @param children
+   * @return a new node of the given type with the given children
+   */
+  private static ASTNode apply(Type type, ASTNode... children) {
+    ASTNode node = new ASTNode(type);
+    for (ASTNode child : children) {
+      node.addChild(child);
+    }
+    return node;
+  }
+
+
+  /**
+   * @param math
+   * @return the LaTeX markup of the given expression
+   */
+  private static String latex(ASTNode math) {
+    StringBuilder sb = new StringBuilder();
+    new LaTeXMathRenderer().append(sb, math);
+    return sb.toString();
+  }
+
+
+  /**
+   * A sum within a product needs parentheses, a product within a sum does not
+   */
+  @Test
+  public void testPrecedence() {
+    ASTNode a = new ASTNode("a");
+    ASTNode b = new ASTNode("b");
+    ASTNode c = new ASTNode("c");
+    assertEquals("\\left(\\mathrm{a} + \\mathrm{b}\\right) \\cdot \\mathrm{c}",
+      latex(apply(Type.TIMES, apply(Type.PLUS, a, b), c)));
+    assertEquals("\\mathrm{a} + \\mathrm{b} \\cdot \\mathrm{c}",
+      latex(apply(Type.PLUS, a, apply(Type.TIMES, b, c))));
+    assertEquals("{\\left(\\mathrm{a} + \\mathrm{b}\\right)}^{\\mathrm{c}}",
+      latex(apply(Type.POWER, apply(Type.PLUS, a, b), c)));
+  }
+
+
+  /**
+   * Subtraction is not associative, so only its right operand needs
+   * parentheses
+   */
+  @Test
+  public void testSubtraction() {
+    ASTNode a = new ASTNode("a");
+    ASTNode b = new ASTNode("b");
+    ASTNode c = new ASTNode("c");
+    assertEquals("\\mathrm{a} - \\mathrm{b} - \\mathrm{c}",
+      latex(apply(Type.MINUS, apply(Type.MINUS, a, b), c)));
+    assertEquals("\\mathrm{a} - \\left(\\mathrm{b} - \\mathrm{c}\\right)",
+      latex(apply(Type.MINUS, a, apply(Type.MINUS, b, c))));
+    assertEquals("\\mathrm{a} + \\left(-\\mathrm{b}\\right)",
+      latex(apply(Type.PLUS, a, apply(Type.MINUS, b))));
+  }
+
+
+  /**
+   * Nested applications of an associative operator are rendered as one
+   * n-ary application without parentheses
+   */
+  @Test
+  public void testFlattening() {
+    ASTNode sum = apply(Type.PLUS,
+      apply(Type.PLUS, new ASTNode("a"), new ASTNode("b")),
+      apply(Type.PLUS, new ASTNode("c"), new ASTNode("d")));
+    assertEquals("\\mathrm{a} + \\mathrm{b} + \\mathrm{c} + \\mathrm{d}",
+      latex(sum));
+    assertEquals("<mrow><mi>a</mi><mo>+</mo><mi>b</mi><mo>+</mo><mi>c</mi>"
+        + "<mo>+</mo><mi>d</mi></mrow>", render(new MathMLRenderer(), sum));
+  }
+
+
+  /**
+   * @param renderer
+   * @param math
+   * @return the markup of the given expression
+   */
+  private static String render(AbstractMathRenderer renderer, ASTNode math) {
+    StringBuilder sb = new StringBuilder();
+    renderer.append(sb, math);
+    return sb.toString();
+  }
+
+
+  /**
+   * Trees far deeper than the call stack allows for recursion are rendered
+   */
+  @Test
+  public void testDeepTree() {
+    int depth = 100000;
+    ASTNode sum = new ASTNode(0);
+    ASTNode difference = new ASTNode(0);
+    for (int i = 1; i < depth; i++) {
+      sum = apply(Type.PLUS, sum, new ASTNode(i % 10));
+      difference = apply(Type.MINUS, new ASTNode(i % 10), difference);
+    }
+    String latex = latex(sum);
+    assertEquals(depth, latex.split(" \\+ ").length);
+    assertEquals("0 + 1 + 2", latex.substring(0, 9));
+    String mathml = render(new MathMLRenderer(), difference);
+    // every difference but the innermost one is a right operand
+    assertEquals(depth - 2, mathml.split("<mo>\\(</mo>", -1).length - 1);
+  }
+
+
+  /**
+   * Repeated subtrees are rendered from the cache with the same markup,
+   * within one expression and across expressions
+   */
+  @Test
+  public void testCaching() {
+    ASTNode product = apply(Type.TIMES, new ASTNode("k"),
+      apply(Type.PLUS, new ASTNode("x"), new ASTNode(1)));
+    ASTNode sum = apply(Type.PLUS, product,
+      apply(Type.TIMES, new ASTNode("k"),
+        apply(Type.PLUS, new ASTNode("x"), new ASTNode(1))));
+    String single = "\\mathrm{k} \\cdot \\left(\\mathrm{x} + 1\\right)";
+    assertEquals(single + " + " + single, latex(sum));
+    AbstractMathRenderer renderer = new LaTeXMathRenderer();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(single + " + " + single, render(renderer, sum));
+      assertEquals(single, render(renderer, product));
+    }
+    StringBuilder sb = new StringBuilder("prefix ");
+    renderer.append(sb, sum);
+    assertEquals("prefix " + single + " + " + single, sb.toString());
+  }
+
+
+  /**
+   * A stand-alone formula includes the markup of the math mode
+   */
+  @Test
+  public void testFormula() {
+    assertEquals("$\\mathrm{k\\_1}$",
+      new LaTeXMathRenderer().render(new ASTNode("k_1")));
+    assertEquals("<math xmlns=\"http://www.w3.org/1998/Math/MathML\">"
+        + "<mi>k_1</mi></math>",
+      new MathMLRenderer().render(new ASTNode("k_1")));
+  }
+
+
+  /**
+   * @param math
+   * @return the plain-text formula of the given expression
+   */
+  private static String infix(ASTNode math) {
+    return new InfixMathRenderer().render(math);
+  }
+
+
+  /**
+   * Plain-text formulas need parentheses wherever the two-dimensional
+   * markup of fractions and exponents groups operands implicitly
+   */
+  @Test
+  public void testInfix() {
+    ASTNode a = new ASTNode("a");
+    ASTNode b = new ASTNode("b");
+    ASTNode c = new ASTNode("c");
+    assertEquals("(a + b) / c",
+      infix(apply(Type.DIVIDE, apply(Type.PLUS, a, b), c)));
+    assertEquals("a / (b * c)",
+      infix(apply(Type.DIVIDE, a, apply(Type.TIMES, b, c))));
+    assertEquals("a * b / c",
+      infix(apply(Type.DIVIDE, apply(Type.TIMES, a, b), c)));
+    assertEquals("a^(b + c)",
+      infix(apply(Type.POWER, a, apply(Type.PLUS, b, c))));
+    assertEquals("(a^b)^c",
+      infix(apply(Type.POWER, apply(Type.POWER, a, b), c)));
+    assertEquals("exp(a) * sqrt(b)", infix(apply(Type.TIMES,
+      apply(Type.FUNCTION_EXP, a), apply(Type.FUNCTION_ROOT, b))));
+    assertEquals("a > 0 && !(b || c)", infix(apply(Type.LOGICAL_AND,
+      apply(Type.RELATIONAL_GT, a, new ASTNode(0)),
+      apply(Type.LOGICAL_NOT, apply(Type.LOGICAL_OR, b, c)))));
+    assertEquals("a - (-1)", infix(apply(Type.MINUS, a, new ASTNode(-1))));
+  }
+
+
+  /**
+   * Plain-text formulas are rendered for trees far deeper than JSBML's
+   * recursive formula compiler can handle
+   */
+  @Test
+  public void testDeepInfix() {
+    int depth = 100000;
+    ASTNode sum = new ASTNode("x");
+    for (int i = 1; i < depth; i++) {
+      sum = apply(Type.PLUS, sum, new ASTNode("x"));
+    }
+    String formula = infix(sum);
+    assertEquals(4 * depth - 3, formula.length());
+    assertEquals("x + x", formula.substring(0, 5));
+  }
+}
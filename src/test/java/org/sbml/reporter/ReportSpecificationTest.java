@@ -0,0 +1,249 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.Test;
+import org.sbml.jsbml.Compartment;
+
+/**
+ * Tests the parsing of command lines by {@link ReportSpecification}.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReportSpecificationTest {
+
+  /**
+   * @param id
+   * @param name
+   *        can be null
+   * @return a new compartment
+   */
+  private static Compartment createCompartment(String id, String name) {
+    Compartment compartment = new Compartment(id, 3, 1);
+    if (name != null) {
+      compartment.setName(name);
+    }
+    return compartment;
+  }
+
+
+  /**
+   * Without options, all sections are reported in the default formats
+   */
+  @Test
+  public void testDefaults() {
+    ReportSpecification specification =
+        ReportSpecification.parse("model.xml", "out");
+    assertEquals(Collections.singletonList("model.xml"),
+      specification.getInputs());
+    assertEquals("model.xml", specification.getInput());
+    assertEquals("out", specification.getOutput());
+    assertEquals(ReportSpecification.DEFAULT_FORMATS,
+      specification.getFormats());
+    assertFalse(specification.isFormatsSpecified());
+    assertEquals(EnumSet.allOf(ReportSection.class),
+      specification.getSections());
+    assertTrue(specification.isIncluded(createCompartment("c", null)));
+  }
+
+
+  /**
+   * All positional arguments but the last one are inputs, "-" included
+   */
+  @Test
+  public void testInputs() {
+    ReportSpecification specification =
+        ReportSpecification.parse("a.xml", "-f", "html", "b.xml", "-", "-");
+    assertEquals(Arrays.asList("a.xml", "b.xml", "-"),
+      specification.getInputs());
+    assertEquals("-", specification.getOutput());
+  }
+
+
+  /**
+   * Lists are separated by commas, blank elements are ignored
+   */
+  @Test
+  public void testFormats() {
+    ReportSpecification specification = ReportSpecification.parse(
+      "--formats", " html, ,csv,", "model.xml", "out");
+    assertEquals(Arrays.asList("html", "csv"), specification.getFormats());
+    assertTrue(specification.isFormatsSpecified());
+  }
+
+
+  /**
+   * Sections are given by their lower case names with hyphens, either as
+   * those to be included or as those to be skipped
+   */
+  @Test
+  public void testSections() {
+    ReportSpecification specification = ReportSpecification.parse("-s",
+      "species,reaction-details", "model.xml", "out");
+    assertEquals(
+      EnumSet.of(ReportSection.SPECIES, ReportSection.REACTION_DETAILS),
+      specification.getSections());
+    specification = ReportSpecification.parse("--skip", "kinetic-laws",
+      "model.xml", "out");
+    assertFalse(specification.isIncluded(ReportSection.KINETIC_LAWS));
+    assertTrue(specification.isIncluded(ReportSection.REACTIONS));
+  }
+
+
+  /**
+   * Compartments are selected by their IDs or names with wildcards, and
+   * excluded patterns take precedence; patterns are case-sensitive
+   */
+  @Test
+  public void testCompartments() {
+    ReportSpecification specification = ReportSpecification.parse("-i",
+      "cyto*,nucle?s", "-x", "*membrane", "model.xml", "out");
+    assertTrue(specification.isIncluded(createCompartment("cytosol", null)));
+    assertTrue(specification.isIncluded(createCompartment("c1", "nucleus")));
+    assertFalse(specification.isIncluded(createCompartment("nucleolus", null)));
+    assertFalse(
+      specification.isIncluded(createCompartment("cyto_membrane", null)));
+    assertFalse(specification.isIncluded(createCompartment("c2", "Cytosol")));
+    assertFalse(specification.restrictTo("c1")
+      .isIncluded(createCompartment("cytosol", null)));
+  }
+
+
+  /**
+   * Wildcards are the only characters with a special meaning in patterns
+   */
+  @Test
+  public void testLiteralPatterns() {
+    ReportSpecification specification =
+        ReportSpecification.parse("-i", "c.(1)", "model.xml", "out");
+    assertTrue(specification.isIncluded(createCompartment("c.(1)", null)));
+    assertFalse(specification.isIncluded(createCompartment("cx(1)", null)));
+  }
+
+
+  /**
+   * Numerical options
+   */
+  @Test
+  public void testNumbers() {
+    ReportSpecification specification = ReportSpecification.parse("-n", "3",
+      "-j", "2", "--split", "0", "--timeout", "60", "--max-output", "1000",
+      "--memory", "512", "--journal", "j.txt", "model.xml", "out");
+    assertEquals(3, specification.getTopN());
+    assertEquals(2, specification.getThreads());
+    assertEquals(0, specification.getSplitThreshold());
+    assertEquals(60, specification.getTimeout());
+    assertEquals(1000, specification.getMaxOutputSize());
+    assertEquals(512, specification.getMemoryBudget());
+    assertEquals("j.txt", specification.getJournal());
+  }
+
+
+  /**
+   * The output limit may exceed the range of int
+   */
+  @Test
+  public void testLargeOutputLimit() {
+    ReportSpecification specification = ReportSpecification.parse(
+      "--max-output", "5000000000", "model.xml", "out");
+    assertEquals(5000000000L, specification.getMaxOutputSize());
+  }
+
+
+  /**
+   * The content key distinguishes specifications of different reports
+   */
+  @Test
+  public void testContentKey() {
+    String key = ReportSpecification.parse("model.xml", "out").getContentKey();
+    assertEquals(key,
+      ReportSpecification.parse("-j", "1", "model.xml", "out")
+      .getContentKey());
+    assertNotEquals(key,
+      ReportSpecification.parse("-f", "html", "model.xml", "out")
+      .getContentKey());
+    assertNotEquals(key,
+      ReportSpecification.parse("-x", "c", "model.xml", "out")
+      .getContentKey());
+  }
+
+
+  /**
+   * An option without value
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingValue() {
+    ReportSpecification.parse("model.xml", "out", "-f");
+  }
+
+
+  /**
+   * An option that does not exist
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownOption() {
+    ReportSpecification.parse("--colour", "red", "model.xml", "out");
+  }
+
+
+  /**
+   * A section that does not exist
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownSection() {
+    ReportSpecification.parse("-s", "species,parameters", "model.xml", "out");
+  }
+
+
+  /**
+   * A number that cannot be parsed
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumber() {
+    ReportSpecification.parse("--timeout", "1m", "model.xml", "out");
+  }
+
+
+  /**
+   * A negative number where only positive ones are allowed
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeNumber() {
+    ReportSpecification.parse("--max-output", "-1", "model.xml", "out");
+  }
+
+
+  /**
+   * The output directory is missing
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingOutput() {
+    ReportSpecification.parse("-f", "html", "model.xml");
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.sbml.jsbml.SBO;
+import org.sbml.jsbml.ontology.Term;
+
+/**
+ * Tests that terms read from a snapshot written by {@link SBOSnapshot} are
+ * the same as those of JSBML's SBO ontology.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class SBOSnapshotTest {
+
+  /**
+   * Numbers of the terms in the snapshot, deliberately unsorted
+   */
+  private static final int[] NUMBERS = {9, 0, 2};
+
+
+  /**
+   * @param numbers
+   * @return a snapshot of the terms with the given numbers
+   * @throws IOException
+   */
+  private static ByteBuffer createSnapshot(int... numbers) throws IOException {
+    List<Term> terms = new ArrayList<Term>();
+    for (int number : numbers) {
+      terms.add(SBO.getTerm(number));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SBOSnapshot.write(terms, out);
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+
+  /**
+   * All properties of the terms survive the round trip
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    ByteBuffer snapshot = createSnapshot(NUMBERS);
+    for (int number : NUMBERS) {
+      SBOTerm expected = SBOTerm.valueOf(SBO.getTerm(number));
+      SBOTerm term = SBOSnapshot.lookUp(snapshot, number);
+      assertEquals(expected.getId(), term.getId());
+      assertEquals(expected.getName(), term.getName());
+      assertEquals(expected.toString(), term.toString());
+      assertEquals(expected.getDefinition(), term.getDefinition());
+      List<String> parents = new ArrayList<String>(term.getParents());
+      List<String> expectedParents =
+          new ArrayList<String>(expected.getParents());
+      Collections.sort(parents);
+      Collections.sort(expectedParents);
+      assertEquals(expectedParents, parents);
+    }
+  }
+
+
+  /**
+   * Terms that are not contained in the snapshot are not found
+   */
+  @Test
+  public void testMissingTerm() throws IOException {
+    ByteBuffer snapshot = createSnapshot(NUMBERS);
+    assertNull(SBOSnapshot.lookUp(snapshot, 1));
+    assertNull(SBOSnapshot.lookUp(snapshot, 10));
+    assertNull(SBOSnapshot.lookUp(createSnapshot(), 9));
+    assertNull(SBOSnapshot.lookUp(null, 9));
+  }
+
+
+  /**
+   * Terms are resolved with or without the snapshot resource
+   */
+  @Test
+  public void testGetTerm() {
+    SBOTerm term = SBOSnapshot.getTerm(9);
+    assertEquals("SBO:0000009", term.getId());
+    assertEquals(SBO.getTerm(9).getName(), term.getName());
+  }
+}
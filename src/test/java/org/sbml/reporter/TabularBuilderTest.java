@@ -0,0 +1,136 @@
+/*
+ * ----------------------------------------------------------------------------
+ * This file is part of SBMLreporter, a documentation tool for systems biology
+ * models. Please visit <https://github.com/sbmlteam/SBMLreporter> for the
+ * latest version of SBMLreporter and more information about this program.
+ * Copyright (C) 2016 jointly by the following organizations:
+ * 1. The University of Tuebingen, Germany
+ * 2. EMBL European Bioinformatics Institute (EBML-EBI), Hinxton, UK
+ * 3. The California Institute of Technology, Pasadena, CA, USA
+ * 4. The University of California, San Diego, La Jolla, CA, USA
+ * 5. The Babraham Institute, Cambridge, UK
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation. A copy of the license agreement is provided
+ * in the file named "LICENSE" included with this software distribution and also
+ * available as <https://github.com/sbmlteam/SBMLreporter/edit/master/LICENSE>.
+ * ----------------------------------------------------------------------------
+ */
+package org.sbml.reporter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Species;
+
+/**
+ * Tests the quoting of fields in the tables of a {@link TabularBuilder}.
+ *
+ * @version 1.0
+ * @since 1.0
+ */
+public class TabularBuilderTest {
+
+  private TabularBuilder builder;
+  private Compartment    compartment;
+
+
+  /**
+   * Creates a builder and a compartment with an ID only
+   */
+  @Before
+  public void setUp() {
+    builder = new TabularBuilder();
+    compartment = new Compartment("cell", 3, 1);
+    compartment.setConstant(true);
+  }
+
+
+  /**
+   * @param name
+   * @return the row of the compartment with the given name
+   */
+  private String createRow(String name) {
+    compartment.setName(name);
+    return builder.createSingleCompartmentSection(null, compartment);
+  }
+
+
+  /**
+   * Unset attributes leave their fields empty
+   */
+  @Test
+  public void testEmptyFields() {
+    assertEquals("cell\t\t\t\t\ttrue\t\t\n",
+      builder.createSingleCompartmentSection(null, compartment));
+    builder.setFormat(TabularBuilder.Format.CSV);
+    assertEquals("cell,,,,,true,,\n",
+      builder.createSingleCompartmentSection(null, compartment));
+  }
+
+
+  /**
+   * Fields without special characters are not quoted
+   */
+  @Test
+  public void testPlainField() {
+    assertEquals("cell\tcytosol\t\t\t\ttrue\t\t\n", createRow("cytosol"));
+  }
+
+
+  /**
+   * Only the separator of the current format makes quotes necessary
+   */
+  @Test
+  public void testSeparator() {
+    assertEquals("cell\t\"a\tb\"\t\t\t\ttrue\t\t\n", createRow("a\tb"));
+    assertEquals("cell\ta,b\t\t\t\ttrue\t\t\n", createRow("a,b"));
+    builder.setFormat(TabularBuilder.Format.CSV);
+    assertEquals("cell,\"a,b\",,,,true,,\n", createRow("a,b"));
+    assertEquals("cell,a\tb,,,,true,,\n", createRow("a\tb"));
+  }
+
+
+  /**
+   * Double quotes are doubled within quoted fields
+   */
+  @Test
+  public void testDoubleQuotes() {
+    builder.setFormat(TabularBuilder.Format.CSV);
+    assertEquals("cell,\"the \"\"outer\"\" cell\",,,,true,,\n",
+      createRow("the \"outer\" cell"));
+  }
+
+
+  /**
+   * Line breaks are kept within quoted fields
+   */
+  @Test
+  public void testLineBreaks() {
+    assertEquals("cell\t\"a\nb\"\t\t\t\ttrue\t\t\n", createRow("a\nb"));
+    assertEquals("cell\t\"a\r\nb\"\t\t\t\ttrue\t\t\n", createRow("a\r\nb"));
+  }
+
+
+  /**
+   * The rows of species are quoted in the same way
+   */
+  @Test
+  public void testSpecies() {
+    builder.setFormat(TabularBuilder.Format.CSV);
+    Species species = new Species("atp", 3, 1);
+    species.setName("ATP, \"free\"");
+    species.setCompartment("cell");
+    species.setInitialAmount(0.25);
+    Map<String, List<Species>> map =
+        Collections.singletonMap("cell", Collections.singletonList(species));
+    assertEquals("atp,\"ATP, \"\"free\"\"\",cell,0.25,,,,,,,\n",
+      builder.createSpeciesSectionOfCompartment(map, compartment));
+  }
+}